@@ -0,0 +1,38 @@
+package com.example.instrumentos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caché de segundo nivel de Hibernate en memoria (JCache con Ehcache). Categorías e
+ * instrumentos se guardan por id y el listado de categorías como consulta cacheable;
+ * las regiones y sus tamaños están en ehcache.xml. Se configura acá y no en
+ * application.properties para que no dependa de cada entorno.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    public static final String REGION_CATEGORIAS = "categorias";
+    public static final String REGION_INSTRUMENTOS = "instrumentos";
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivel(
+            @Value("${instrumentos.cache.habilitada:true}") boolean habilitada,
+            @Value("${instrumentos.cache.estadisticas:true}") boolean estadisticas) {
+        return propiedades -> {
+            propiedades.put("hibernate.cache.use_second_level_cache", habilitada);
+            propiedades.put("hibernate.cache.use_query_cache", habilitada);
+            if (habilitada) {
+                propiedades.put("hibernate.cache.region.factory_class", "jcache");
+                propiedades.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+                propiedades.put("hibernate.javax.cache.uri", "ehcache.xml");
+                // Una región que falte en ehcache.xml es un error de configuración, no se crea sin límite
+                propiedades.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            }
+            // Aciertos y fallos por región para GET /cache/estadisticas
+            propiedades.put("hibernate.generate_statistics", estadisticas);
+        };
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.instrumentos.config;
+
+import com.example.instrumentos.model.Instrumento;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calentamiento al iniciar: antes de recibir tráfico se hacen pedidos sintéticos a los
+ * endpoints públicos del catálogo contra el propio servidor. Así quedan cargadas la caché
+ * de respuestas, los precios vigentes y las categorías, y Jackson, los filtros y el JIT ya
+ * pasaron por los caminos más usados. Mientras tanto el grupo de readiness (health
+ * "calentamiento") responde OUT_OF_SERVICE y el balanceador no envía pedidos reales.
+ *
+ * Arranca cuando Spring Boot declara la aplicación lista para tráfico, o sea, después de
+ * que los índices en memoria se cargaron con ApplicationReadyEvent. Los pedidos llevan la
+ * cabecera {@link #CABECERA_CALENTAMIENTO} para que no cuenten como visitas reales.
+ */
+@Component("calentamiento")
+@Slf4j
+public class CalentamientoInicial implements HealthIndicator {
+
+    public static final String CABECERA_CALENTAMIENTO = "X-Calentamiento";
+
+    private final InstrumentoRepository instrumentoRepository;
+    private final Environment environment;
+    private final boolean habilitado;
+    private final int iteraciones;
+    private final long tiempoMaximoMs;
+
+    private volatile boolean terminado;
+    private volatile Health resultado = Health.outOfService().withDetail("estado", "pendiente").build();
+
+    public CalentamientoInicial(InstrumentoRepository instrumentoRepository,
+            Environment environment,
+            @Value("${instrumentos.calentamiento.habilitado:true}") boolean habilitado,
+            @Value("${instrumentos.calentamiento.iteraciones:200}") int iteraciones,
+            @Value("${instrumentos.calentamiento.tiempo-maximo-ms:60000}") long tiempoMaximoMs) {
+        this.instrumentoRepository = instrumentoRepository;
+        this.environment = environment;
+        this.habilitado = habilitado;
+        this.iteraciones = iteraciones;
+        this.tiempoMaximoMs = tiempoMaximoMs;
+    }
+
+    @Override
+    public Health health() {
+        return resultado;
+    }
+
+    @EventListener
+    public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC || terminado) {
+            return;
+        }
+        terminado = true;
+
+        Integer puerto = environment.getProperty("local.server.port", Integer.class);
+        if (!habilitado || puerto == null) {
+            // Sin servidor web (por ejemplo en tests) no hay nada que calentar
+            resultado = Health.up().withDetail("estado", "omitido").build();
+            return;
+        }
+
+        try {
+            resultado = calentar("http://localhost:" + puerto + environment.getProperty("server.servlet.context-path", ""));
+        } catch (RuntimeException e) {
+            // Un calentamiento fallido no debe dejar la instancia fuera de servicio para siempre
+            log.error("❌ Error durante el calentamiento; la instancia se reporta lista igual", e);
+            resultado = Health.up().withDetail("estado", "con errores").build();
+        }
+    }
+
+    private Health calentar(String base) {
+        long inicio = System.currentTimeMillis();
+        List<String> rutas = rutasDeCalentamiento();
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        log.info("🔥 Calentando {} endpoint(s) con {} iteración(es)...", rutas.size(), iteraciones);
+
+        int pedidos = 0;
+        int errores = 0;
+        int iteracion = 0;
+        for (; iteracion < iteraciones; iteracion++) {
+            if (System.currentTimeMillis() - inicio > tiempoMaximoMs) {
+                log.warn("⚠️ Calentamiento cortado por tiempo tras {} iteración(es)", iteracion);
+                break;
+            }
+            for (String ruta : rutas) {
+                pedidos++;
+                // Se alterna con y sin gzip para pasar por las dos variantes de la caché
+                if (!pedir(cliente, base + ruta, iteracion % 2 == 0)) {
+                    errores++;
+                }
+            }
+        }
+
+        long duracion = System.currentTimeMillis() - inicio;
+        log.info("✅ Calentamiento terminado: {} pedido(s), {} error(es) en {} ms", pedidos, errores, duracion);
+        return Health.up()
+                .withDetail("estado", "terminado")
+                .withDetail("iteraciones", iteracion)
+                .withDetail("pedidos", pedidos)
+                .withDetail("errores", errores)
+                .withDetail("duracionMs", duracion)
+                .build();
+    }
+
+    /**
+     * Endpoints públicos más usados; los que necesitan un id usan el primer instrumento
+     */
+    private List<String> rutasDeCalentamiento() {
+        List<String> rutas = new ArrayList<>(List.of(
+                "/instrumentos",
+                "/instrumentos?limit=20",
+                "/instrumentos?limit=20&sort=precio",
+                "/instrumentos/facetas",
+                "/instrumentos/buscar?q=guitarra",
+                "/instrumentos/sugerencias?prefix=gu",
+                "/categorias"));
+
+        List<Instrumento> primero = instrumentoRepository.findAll(PageRequest.of(0, 1)).getContent();
+        if (!primero.isEmpty()) {
+            Long id = primero.get(0).getIdInstrumento();
+            rutas.add("/instrumentos/" + id);
+            rutas.add("/instrumentos/" + id + "/similares");
+            rutas.add("/instrumentos/lote?ids=" + id);
+        }
+        return rutas;
+    }
+
+    private boolean pedir(HttpClient cliente, String url, boolean gzip) {
+        HttpRequest.Builder pedido = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(10))
+                .header(CABECERA_CALENTAMIENTO, "true")
+                .GET();
+        if (gzip) {
+            pedido.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        try {
+            HttpResponse<Void> respuesta = cliente.send(pedido.build(), HttpResponse.BodyHandlers.discarding());
+            if (respuesta.statusCode() >= 400) {
+                log.debug("⚠️ Calentamiento: {} respondió {}", url, respuesta.statusCode());
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.debug("⚠️ Calentamiento: {} falló: {}", url, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -117,11 +117,13 @@ public class DataInitializer implements org.springframework.boot.CommandLineRunn
                             log.info("Instrumento: '{}' | Categoría asignada: '{}'", denominacion,
                                     categoria.getDenominacion());
 
+                            // Obtener el precio del JSON
+                            Double precioActual = instrumentoNode.get("precioActual").asDouble();
+                            instrumento.setPrecioActual(precioActual);
+
                             // Guardar instrumento
                             instrumento = instrumentoRepository.save(instrumento);
 
-                            // Obtener el precio del JSON
-                            Double precioActual = instrumentoNode.get("precioActual").asDouble();
                             // Crear historial de precio
                             HistorialPrecio historialPrecio = new HistorialPrecio(instrumento,
                                     precioActual);
@@ -0,0 +1,32 @@
+package com.example.instrumentos.config;
+
+import com.example.instrumentos.repository.InstrumentoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+/**
+ * Alinea la columna precio_actual con el historial al iniciar: completa los instrumentos
+ * creados antes de que existiera y aplica los precios programados que entraron en vigencia
+ * mientras la aplicación estaba detenida. Es idempotente: solo toca las filas que difieren.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PrecioActualBackfill implements CommandLineRunner {
+
+    private final InstrumentoRepository instrumentoRepository;
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        int actualizados = instrumentoRepository.sincronizarPrecioActual(new Date());
+        if (actualizados > 0) {
+            log.info("✅ precio_actual sincronizado con el historial en {} instrumento(s)", actualizados);
+        }
+    }
+}
@@ -57,7 +57,12 @@ public class SecurityConfig {
                                 "/v3/api-docs/**")
                         .permitAll()
                         .requestMatchers(HttpMethod.GET, "/instrumentos/**", "/categorias/**").permitAll()
+                        // Consulta de disponibilidad del carrito: solo lectura, también para visitantes
+                        .requestMatchers(HttpMethod.POST, "/instrumentos/lote").permitAll()
                         .requestMatchers("/uploads/**").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        // Métricas (por ejemplo el progreso de la retención del historial): solo admin
+                        .requestMatchers("/actuator/metrics/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated())
                 .authenticationProvider(authenticationProvider())
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
@@ -0,0 +1,69 @@
+package com.example.instrumentos.controller;
+
+import com.example.instrumentos.dto.response.EstadisticaRegionCacheDTO;
+import com.example.instrumentos.service.CacheSegundoNivel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/cache")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    private final CacheSegundoNivel cacheSegundoNivel;
+
+    /**
+     * Aciertos y fallos por región de la caché de segundo nivel (solo admin)
+     */
+    @GetMapping("/estadisticas")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getEstadisticas() {
+        try {
+            if (!cacheSegundoNivel.estadisticasHabilitadas()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(crearRespuestaError("Las estadísticas de la caché están deshabilitadas " +
+                                "(instrumentos.cache.estadisticas=false)"));
+            }
+            List<EstadisticaRegionCacheDTO> regiones = cacheSegundoNivel.estadisticas();
+            return ResponseEntity.ok(regiones);
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener las estadísticas de la caché", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener las estadísticas de la caché"));
+        }
+    }
+
+    /**
+     * Vaciar todas las regiones, por ejemplo después de tocar la base a mano (solo admin)
+     */
+    @DeleteMapping
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> limpiar() {
+        try {
+            cacheSegundoNivel.limpiar();
+            return ResponseEntity.noContent().build();
+
+        } catch (Exception e) {
+            log.error("❌ Error al vaciar la caché", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al vaciar la caché"));
+        }
+    }
+
+    private Map<String, String> crearRespuestaError(String mensaje) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", mensaje);
+        return error;
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.instrumentos.controller;
 
+import com.example.instrumentos.dto.response.ResumenCategoriaDTO;
 import com.example.instrumentos.model.CategoriaInstrumento;
 import com.example.instrumentos.service.CategoriaService;
+import com.example.instrumentos.service.VersionCatalogo;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -15,16 +19,55 @@ import java.util.List;
 public class CategoriaController {
 
     private final CategoriaService categoriaService;
+    private final VersionCatalogo versionCatalogo;
 
     @GetMapping
-    public ResponseEntity<List<CategoriaInstrumento>> getAllCategorias() {
-        return ResponseEntity.ok(categoriaService.findAll());
+    public ResponseEntity<List<CategoriaInstrumento>> getAllCategorias(WebRequest request) {
+        String etag = versionCatalogo.etag(VersionCatalogo.Recurso.CATEGORIAS, null);
+        long ultimaModificacion = versionCatalogo.ultimaModificacion(VersionCatalogo.Recurso.CATEGORIAS);
+        if (request.checkNotModified(etag, ultimaModificacion)) {
+            // 304 sin consultar la base: checkNotModified ya completó la respuesta
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .lastModified(ultimaModificacion)
+                .body(categoriaService.findAll());
+    }
+
+    /**
+     * Categorías con cantidad de instrumentos, cuántos tienen stock y rango de precios.
+     * Sale de totales en memoria, así que no depende del tamaño del catálogo.
+     */
+    @GetMapping("/resumen")
+    public ResponseEntity<List<ResumenCategoriaDTO>> getResumenCategorias(WebRequest request) {
+        // Cambia con instrumentos y con categorías, igual que el ETag del catálogo
+        String etag = versionCatalogo.etag(VersionCatalogo.Recurso.INSTRUMENTOS, "resumen");
+        long ultimaModificacion = versionCatalogo.ultimaModificacion(VersionCatalogo.Recurso.INSTRUMENTOS);
+        if (request.checkNotModified(etag, ultimaModificacion)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .lastModified(ultimaModificacion)
+                .body(categoriaService.obtenerResumen());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CategoriaInstrumento> getCategoriaById(@PathVariable Long id) {
+    public ResponseEntity<CategoriaInstrumento> getCategoriaById(@PathVariable Long id, WebRequest request) {
+        String etag = versionCatalogo.etag(VersionCatalogo.Recurso.CATEGORIAS, null);
+        long ultimaModificacion = versionCatalogo.ultimaModificacion(VersionCatalogo.Recurso.CATEGORIAS);
+        if (request.checkNotModified(etag, ultimaModificacion)) {
+            return null;
+        }
         return categoriaService.findById(id)
-                .map(ResponseEntity::ok)
+                .map(categoria -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(etag)
+                        .lastModified(ultimaModificacion)
+                        .body(categoria))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -1,23 +1,66 @@
 package com.example.instrumentos.controller;
 
+import com.example.instrumentos.config.CalentamientoInicial;
+import com.example.instrumentos.dto.request.ActualizarPreciosLoteDTO;
+import com.example.instrumentos.dto.request.ConsultaLoteDTO;
+import com.example.instrumentos.dto.request.HistorialPrecioRequestDTO;
 import com.example.instrumentos.dto.request.InstrumentoRequestDTO;
+import com.example.instrumentos.dto.response.CambiosCatalogoDTO;
+import com.example.instrumentos.dto.response.DisponibilidadInstrumentoDTO;
+import com.example.instrumentos.dto.response.FacetasResponseDTO;
+import com.example.instrumentos.dto.response.HistorialPrecioResponseDTO;
 import com.example.instrumentos.dto.response.InstrumentoResponseDTO;
+import com.example.instrumentos.dto.response.PaginaResponseDTO;
+import com.example.instrumentos.dto.response.ResultadoImportacionStockDTO;
+import com.example.instrumentos.dto.response.ResultadoPreciosLoteDTO;
+import com.example.instrumentos.dto.response.SugerenciaResponseDTO;
 import com.example.instrumentos.mapper.InstrumentoMapper;
 import com.example.instrumentos.model.HistorialPrecio;
 import com.example.instrumentos.model.Instrumento;
+import com.example.instrumentos.service.AlertaStockService;
+import com.example.instrumentos.service.CatalogoResponseCache;
+import com.example.instrumentos.service.ExportacionCatalogoService;
+import com.example.instrumentos.service.FacetasIndex;
+import com.example.instrumentos.service.HistorialPrecioService;
+import com.example.instrumentos.service.ImportacionStockService;
 import com.example.instrumentos.service.InstrumentoService;
+import com.example.instrumentos.service.PopularidadInstrumentos;
+import com.example.instrumentos.service.PrecioLoteService;
+import com.example.instrumentos.service.ProyeccionCamposService;
+import com.example.instrumentos.service.RegistroCambiosCatalogo;
+import com.example.instrumentos.service.SimilaresIndex;
+import com.example.instrumentos.service.SugerenciasIndex;
+import com.example.instrumentos.service.VersionCatalogo;
+import com.example.instrumentos.util.CamposSolicitados;
+import com.example.instrumentos.util.CursorCatalogo;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -29,35 +72,85 @@ public class InstrumentoController {
 
     private final InstrumentoService instrumentoService;
     private final InstrumentoMapper instrumentoMapper;
+    private final CatalogoResponseCache catalogoResponseCache;
+    private final FacetasIndex facetasIndex;
+    private final VersionCatalogo versionCatalogo;
+    private final HistorialPrecioService historialPrecioService;
+    private final PrecioLoteService precioLoteService;
+    private final ImportacionStockService importacionStockService;
+    private final AlertaStockService alertaStockService;
+    private final ExportacionCatalogoService exportacionCatalogoService;
+    private final SugerenciasIndex sugerenciasIndex;
+    private final ProyeccionCamposService proyeccionCamposService;
+    private final SimilaresIndex similaresIndex;
+    private final PopularidadInstrumentos popularidadInstrumentos;
+    private final RegistroCambiosCatalogo registroCambiosCatalogo;
+
+    private static final int LIMITE_PAGINA_DEFECTO = 20;
+    private static final int LIMITE_PAGINA_MAXIMO = 100;
+    private static final int INTERVALOS_MAXIMO = 1000;
+    private static final int LIMITE_SUGERENCIAS_MAXIMO = 20;
+    private static final int LIMITE_CAMBIOS_MAXIMO = 1000;
 
     /**
-     * Obtener todos los instrumentos (con filtro opcional por categoría)
+     * Obtener todos los instrumentos (con filtro opcional por categoría).
+     * La respuesta sale de la caché de JSON serializado; si el cliente acepta gzip se
+     * envía la copia comprimida tal cual. Con limit, after o sort se devuelve una página.
+     * Si el ETag del cliente sigue vigente se responde 304 sin tocar la caché ni la base.
+     * Con fields (por ejemplo "denominacion,precioActual,imagen") solo se leen y devuelven esos campos;
+     * fields no se combina con la paginación (400).
      */
     @GetMapping
-    public ResponseEntity<List<InstrumentoResponseDTO>> getAllInstrumentos(
-            @RequestParam(required = false) Long idCategoria) {
+    public ResponseEntity<?> getAllInstrumentos(
+            @RequestParam(required = false) Long idCategoria,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        if (limit != null || after != null || sort != null) {
+            if (fields != null) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El parámetro fields no se puede combinar con limit, after o sort"));
+            }
+            return getPaginaInstrumentos(idCategoria, limit, after, sort);
+        }
+        if (fields != null) {
+            return getInstrumentosConCampos(idCategoria, null, fields, request);
+        }
+
         try {
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+            String etag = versionCatalogo.etag(VersionCatalogo.Recurso.INSTRUMENTOS, gzip ? "gz" : null);
+            long ultimaModificacion = versionCatalogo.ultimaModificacion(VersionCatalogo.Recurso.INSTRUMENTOS);
+            if (request.checkNotModified(etag, ultimaModificacion)) {
+                // checkNotModified ya dejó el 304 y las cabeceras en la respuesta
+                return null;
+            }
+
             log.info("📋 Obteniendo instrumentos" +
                     (idCategoria != null ? " de categoría: " + idCategoria : ""));
 
-            List<Instrumento> instrumentos = (idCategoria != null)
-                    ? instrumentoService.findByCategoria(idCategoria)
-                    : instrumentoService.findAll();
-
-            List<InstrumentoResponseDTO> dtos = instrumentos.stream()
-                    .map(instr -> {
-                        Double precio;
-                        try {
-                            precio = instrumentoService.obtenerPrecioActual(instr);
-                        } catch (IllegalStateException e) {
-                            precio = 0.0;
-                        }
-                        return instrumentoMapper.toDTO(instr, precio);
-                    })
-                    .collect(Collectors.toList());
+            String clave = (idCategoria != null)
+                    ? CatalogoResponseCache.claveCategoria(idCategoria)
+                    : CatalogoResponseCache.CLAVE_TODOS;
+
+            CatalogoResponseCache.RespuestaSerializada respuesta = catalogoResponseCache.obtener(clave,
+                    () -> construirCatalogo(idCategoria));
 
-            log.info("✅ Se encontraron {} instrumento(s)", dtos.size());
-            return ResponseEntity.ok(dtos);
+            // El ETag sale de la versión del cuerpo enviado, no de la leída antes de obtenerlo
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(VersionCatalogo.etag(respuesta.version(), gzip ? "gz" : null))
+                    .lastModified(ultimaModificacion);
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return builder.body(gzip ? respuesta.gzip() : respuesta.json());
 
         } catch (Exception e) {
             log.error("❌ Error al obtener instrumentos", e);
@@ -65,25 +158,400 @@ public class InstrumentoController {
         }
     }
 
+    /**
+     * Instrumentos con solo los campos pedidos: la consulta lee únicamente esas columnas
+     */
+    private ResponseEntity<?> getInstrumentosConCampos(Long idCategoria, Long idInstrumento, String fields,
+            WebRequest request) {
+        try {
+            CamposSolicitados campos = CamposSolicitados.parsear(fields);
+            campos.validar(ProyeccionCamposService.CAMPOS_INSTRUMENTO);
+
+            // Cada combinación de campos es una variante distinta de la misma versión del catálogo
+            String etag = versionCatalogo.etag(VersionCatalogo.Recurso.INSTRUMENTOS,
+                    "f" + Integer.toHexString(campos.toString().hashCode()));
+            long ultimaModificacion = versionCatalogo.ultimaModificacion(VersionCatalogo.Recurso.INSTRUMENTOS);
+            // Igual que en el detalle: un id que no existe no puede responder 304
+            boolean existe = idInstrumento == null || facetasIndex.contiene(idInstrumento);
+            if (existe && request.checkNotModified(etag, ultimaModificacion)) {
+                return null;
+            }
+
+            log.info("📋 Obteniendo instrumentos con campos [{}]{}", campos,
+                    idInstrumento != null ? " (ID: " + idInstrumento + ")" : "");
+
+            List<Map<String, Object>> instrumentos = proyeccionCamposService.instrumentos(campos, idCategoria,
+                    idInstrumento);
+            if (idInstrumento != null && instrumentos.isEmpty()) {
+                log.warn("⚠️ Instrumento {} no encontrado", idInstrumento);
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(etag)
+                    .lastModified(ultimaModificacion)
+                    .body(idInstrumento != null ? instrumentos.get(0) : instrumentos);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(crearRespuestaError(e.getMessage()));
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener instrumentos con campos '{}'", fields, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener instrumentos"));
+        }
+    }
+
+    /**
+     * Página del catálogo por clave (keyset): ordenada por nombre, precio o stock
+     */
+    private ResponseEntity<?> getPaginaInstrumentos(Long idCategoria, Integer limit, String after, String sort) {
+        try {
+            int limite = limit != null ? limit : LIMITE_PAGINA_DEFECTO;
+            if (limite < 1 || limite > LIMITE_PAGINA_MAXIMO) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO));
+            }
+
+            CursorCatalogo.Orden orden = CursorCatalogo.Orden.desdeParametro(sort);
+            CursorCatalogo cursor = (after != null && !after.isBlank())
+                    ? CursorCatalogo.decodificar(after, orden)
+                    : null;
+
+            log.info("📋 Página de instrumentos: orden={}, límite={}, cursor={}", orden, limite, after);
+
+            // Se pide una fila extra solo para saber si existe una página siguiente
+            List<Instrumento> filas = instrumentoService.findPagina(orden, cursor, limite + 1, idCategoria);
+            boolean hayMas = filas.size() > limite;
+            List<Instrumento> pagina = hayMas ? filas.subList(0, limite) : filas;
+
+            List<InstrumentoResponseDTO> items = pagina.stream()
+                    .map(this::toResumenConPrecioActual)
+                    .collect(Collectors.toList());
+
+            String siguienteCursor = hayMas
+                    ? CursorCatalogo.despuesDe(pagina.get(pagina.size() - 1), orden).codificar()
+                    : null;
+
+            return ResponseEntity.ok(new PaginaResponseDTO<>(items, siguienteCursor, hayMas));
+
+        } catch (IllegalArgumentException e) {
+            log.error("❌ Parámetros de paginación inválidos: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(crearRespuestaError(e.getMessage()));
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener la página de instrumentos", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener los instrumentos"));
+        }
+    }
+
+    private List<InstrumentoResponseDTO> construirCatalogo(Long idCategoria) {
+        List<InstrumentoResponseDTO> dtos = (idCategoria != null)
+                ? instrumentoService.findDTOByCategoria(idCategoria)
+                : instrumentoService.findAllDTO();
+
+        log.info("✅ Catálogo serializado con {} instrumento(s)", dtos.size());
+        return dtos;
+    }
+
+    /**
+     * Buscar instrumentos por texto (denominación, marca y descripción), ordenados por relevancia
+     */
+    @GetMapping("/buscar")
+    public ResponseEntity<?> buscarInstrumentos(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (limit < 1 || limit > LIMITE_PAGINA_MAXIMO) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO));
+            }
+
+            log.info("🔎 Buscando instrumentos: '{}'", q);
+
+            List<InstrumentoResponseDTO> resultados = instrumentoService.buscar(q, limit).stream()
+                    .map(this::toResumenConPrecioActual)
+                    .collect(Collectors.toList());
+
+            log.info("✅ La búsqueda devolvió {} instrumento(s)", resultados.size());
+            return ResponseEntity.ok(resultados);
+
+        } catch (Exception e) {
+            log.error("❌ Error al buscar instrumentos: '{}'", q, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al buscar instrumentos"));
+        }
+    }
+
+    /**
+     * Autocompletar nombres y marcas para el buscador, de los más vendidos a los menos.
+     * Se resuelve en memoria, pensado para llamarse en cada tecla.
+     */
+    @GetMapping("/sugerencias")
+    public ResponseEntity<?> getSugerencias(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            if (limit < 1 || limit > LIMITE_SUGERENCIAS_MAXIMO) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El límite debe estar entre 1 y " + LIMITE_SUGERENCIAS_MAXIMO));
+            }
+
+            List<SugerenciaResponseDTO> sugerencias = sugerenciasIndex.sugerir(prefix, limit).stream()
+                    .map(r -> new SugerenciaResponseDTO(r.texto(), r.tipo().name(), r.instrumentos()))
+                    .collect(Collectors.toList());
+
+            log.debug("⌨️ {} sugerencia(s) para '{}'", sugerencias.size(), prefix);
+            return ResponseEntity.ok(sugerencias);
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener sugerencias para '{}'", prefix, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener sugerencias"));
+        }
+    }
+
+    /**
+     * Sincronización incremental: instrumentos creados, modificados o eliminados después de la
+     * secuencia "desde", con su estado actual. Sin "desde" (o si el registro ya descartó esos
+     * cambios) se responde resincronizar=true con la secuencia actual: el cliente carga el
+     * catálogo completo y desde ahí pide solo los cambios.
+     */
+    @GetMapping("/cambios")
+    public ResponseEntity<?> getCambios(
+            @RequestParam(required = false) Long desde,
+            @RequestParam(defaultValue = "500") int limit) {
+        try {
+            if (limit < 1 || limit > LIMITE_CAMBIOS_MAXIMO) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El límite debe estar entre 1 y " + LIMITE_CAMBIOS_MAXIMO));
+            }
+
+            // La secuencia se toma antes de leer: lo que cambie mientras tanto vuelve en el próximo pedido
+            long actual = registroCambiosCatalogo.ultimaSecuencia();
+            RegistroCambiosCatalogo.Cambios cambios = desde != null
+                    ? registroCambiosCatalogo.cambiosDesde(desde, limit)
+                    : null;
+            if (cambios == null) {
+                log.info("🔄 Cambios desde {}: se requiere resincronizar (secuencia actual {})", desde, actual);
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.noStore())
+                        .body(new CambiosCatalogoDTO(actual, true, false, List.of(), List.of()));
+            }
+
+            List<Instrumento> instrumentos = instrumentoService.findAllByIdEnOrden(cambios.modificados());
+            List<InstrumentoResponseDTO> modificados = instrumentos.stream()
+                    .map(this::toResumenConPrecioActual)
+                    .collect(Collectors.toList());
+            // Los que ya no existen (eliminados después del cambio registrado) también se informan
+            List<Long> eliminados = new ArrayList<>(cambios.eliminados());
+            if (instrumentos.size() < cambios.modificados().size()) {
+                Set<Long> encontrados = instrumentos.stream()
+                        .map(Instrumento::getIdInstrumento)
+                        .collect(Collectors.toSet());
+                cambios.modificados().stream()
+                        .filter(id -> !encontrados.contains(id))
+                        .forEach(eliminados::add);
+            }
+
+            log.debug("🔄 Cambios desde {} hasta {}: {} modificado(s), {} eliminado(s)",
+                    desde, cambios.hasta(), modificados.size(), eliminados.size());
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(new CambiosCatalogoDTO(cambios.hasta(), false, cambios.hayMas(), modificados, eliminados));
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener los cambios del catálogo desde {}", desde, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener los cambios del catálogo"));
+        }
+    }
+
+    /**
+     * Instrumentos más populares según vistas del detalle y líneas de pedido.
+     * Se ordena con los contadores en memoria, sin consultar la base.
+     */
+    @GetMapping("/populares")
+    public ResponseEntity<?> getPopulares(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (limit < 1 || limit > LIMITE_PAGINA_MAXIMO) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO));
+            }
+
+            List<InstrumentoResponseDTO> populares = instrumentoService
+                    .findAllByIdEnOrden(popularidadInstrumentos.masPopulares(limit)).stream()
+                    .map(this::toResumenConPrecioActual)
+                    .collect(Collectors.toList());
+
+            log.debug("🔥 {} instrumento(s) populares", populares.size());
+            return ResponseEntity.ok(populares);
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener los instrumentos populares", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener los instrumentos populares"));
+        }
+    }
+
+    /**
+     * Filtrar el catálogo por categoría, marca, rango de precio y stock, devolviendo
+     * además cuántos instrumentos hay en cada valor de cada faceta
+     */
+    @GetMapping("/facetas")
+    public ResponseEntity<?> filtrarConFacetas(
+            @RequestParam(required = false) Set<Long> idCategoria,
+            @RequestParam(required = false) Set<String> marca,
+            @RequestParam(required = false) Double precioMin,
+            @RequestParam(required = false) Double precioMax,
+            @RequestParam(defaultValue = "false") boolean conStock,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (limit < 1 || limit > LIMITE_PAGINA_MAXIMO) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El límite debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO));
+            }
+            if (offset < 0) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El offset no puede ser negativo"));
+            }
+
+            log.info("🧮 Filtrando catálogo por facetas: categorías={}, marcas={}, precio=[{}, {}], conStock={}",
+                    idCategoria, marca, precioMin, precioMax, conStock);
+
+            FacetasIndex.ResultadoFacetas resultado = facetasIndex.filtrar(idCategoria, marca, precioMin,
+                    precioMax, conStock, offset, limit);
+
+            List<InstrumentoResponseDTO> items = instrumentoService.findAllByIdEnOrden(resultado.ids()).stream()
+                    .map(this::toResumenConPrecioActual)
+                    .collect(Collectors.toList());
+
+            log.info("✅ {} instrumento(s) cumplen los filtros", resultado.total());
+            return ResponseEntity.ok(toFacetasDTO(resultado, items));
+
+        } catch (Exception e) {
+            log.error("❌ Error al filtrar instrumentos por facetas", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al filtrar instrumentos"));
+        }
+    }
+
+    /**
+     * Precio vigente, stock y disponibilidad de varios instrumentos en una sola llamada
+     * (por ejemplo, para revalidar el carrito). Respeta el orden de los ids recibidos.
+     */
+    @GetMapping("/lote")
+    public ResponseEntity<?> getInstrumentosEnLote(@RequestParam List<Long> ids) {
+        List<ConsultaLoteDTO.ItemConsulta> items = ids.stream()
+                .map(id -> new ConsultaLoteDTO.ItemConsulta(id, null))
+                .collect(Collectors.toList());
+        return consultarDisponibilidad(items);
+    }
+
+    /**
+     * Igual que GET /lote, pero con la cantidad de cada ítem para saber si alcanza el stock
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<?> consultarLote(@Valid @RequestBody ConsultaLoteDTO request) {
+        return consultarDisponibilidad(request.getItems());
+    }
+
+    private ResponseEntity<?> consultarDisponibilidad(List<ConsultaLoteDTO.ItemConsulta> items) {
+        try {
+            if (items.isEmpty() || items.size() > ConsultaLoteDTO.MAX_ITEMS) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("Se pueden consultar entre 1 y " + ConsultaLoteDTO.MAX_ITEMS +
+                                " instrumentos por vez"));
+            }
+            if (items.stream().anyMatch(item -> item.getInstrumentoId() == null)) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El ID del instrumento es obligatorio"));
+            }
+
+            List<DisponibilidadInstrumentoDTO> resultado = instrumentoService.consultarDisponibilidad(items);
+
+            log.debug("🛒 Consulta en lote de {} instrumento(s)", items.size());
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(resultado);
+
+        } catch (Exception e) {
+            log.error("❌ Error al consultar instrumentos en lote", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al consultar los instrumentos"));
+        }
+    }
+
+    /**
+     * Exportar el catálogo completo en NDJSON o CSV. Las filas se escriben a medida que se
+     * leen de la base, así que la respuesta empieza enseguida y no se arma en memoria.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportarCatalogo(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportacionCatalogoService.Formato formato;
+        try {
+            formato = ExportacionCatalogoService.Formato.desdeParametro(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(crearRespuestaError(e.getMessage() + " (use ndjson o csv)"));
+        }
+
+        log.info("📤 Exportando catálogo en {}", formato);
+
+        StreamingResponseBody cuerpo = salida -> {
+            try {
+                exportacionCatalogoService.exportar(formato, salida);
+            } catch (IOException e) {
+                // La respuesta ya empezó: solo queda registrar el corte
+                log.warn("⚠️ Exportación del catálogo interrumpida: {}", e.getMessage());
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(formato.getTipo())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"catalogo." + formato.getExtension() + "\"")
+                .cacheControl(CacheControl.noStore())
+                .body(cuerpo);
+    }
+
     /**
      * Obtener un instrumento por su ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getInstrumentoById(@PathVariable Long id) {
+    public ResponseEntity<?> getInstrumentoById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return getInstrumentosConCampos(null, id, fields, request);
+        }
         try {
+            String etag = versionCatalogo.etag(VersionCatalogo.Recurso.INSTRUMENTOS, null);
+            long ultimaModificacion = versionCatalogo.ultimaModificacion(VersionCatalogo.Recurso.INSTRUMENTOS);
+            // El ETag es del catálogo entero: un id que no existe no puede responder 304
+            if (facetasIndex.contiene(id) && request.checkNotModified(etag, ultimaModificacion)) {
+                registrarVista(id, request);
+                return null;
+            }
+
             log.info("📄 Consultando instrumento ID: {}", id);
 
             return instrumentoService.findById(id)
                     .map(instrumento -> {
-                        Double precio;
-                        try {
-                            precio = instrumentoService.obtenerPrecioActual(instrumento);
-                        } catch (IllegalStateException e) {
-                            precio = 0.0;
-                        }
-                        InstrumentoResponseDTO dto = instrumentoMapper.toDTO(instrumento, precio);
+                        InstrumentoResponseDTO dto = toDTOConPrecioActual(instrumento);
+                        registrarVista(id, request);
                         log.info("✅ Instrumento {} encontrado", id);
-                        return ResponseEntity.ok(dto);
+                        return ResponseEntity.ok()
+                                .cacheControl(CacheControl.noCache())
+                                .eTag(etag)
+                                .lastModified(ultimaModificacion)
+                                .body(dto);
                     })
                     .orElseGet(() -> {
                         log.warn("⚠️ Instrumento {} no encontrado", id);
@@ -110,14 +578,7 @@ public class InstrumentoController {
             Instrumento savedWithHistorial = instrumentoService.findById(saved.getIdInstrumento())
                     .orElseThrow();
 
-            Double precio;
-            try {
-                precio = instrumentoService.obtenerPrecioActual(savedWithHistorial);
-            } catch (IllegalStateException e) {
-                precio = 0.0;
-            }
-
-            InstrumentoResponseDTO response = instrumentoMapper.toDTO(savedWithHistorial, precio);
+            InstrumentoResponseDTO response = instrumentoMapper.toDTO(savedWithHistorial);
 
             log.info("✅ Instrumento creado con ID: {}", response.getIdInstrumento());
             return new ResponseEntity<>(response, HttpStatus.CREATED);
@@ -147,14 +608,7 @@ public class InstrumentoController {
 
             Instrumento updatedInstrumento = instrumentoService.update(id, dto);
 
-            Double precio;
-            try {
-                precio = instrumentoService.obtenerPrecioActual(updatedInstrumento);
-            } catch (IllegalStateException e) {
-                precio = 0.0;
-            }
-
-            InstrumentoResponseDTO response = instrumentoMapper.toDTO(updatedInstrumento, precio);
+            InstrumentoResponseDTO response = instrumentoMapper.toDTO(updatedInstrumento);
 
             log.info("✅ Instrumento {} actualizado correctamente", id);
             return ResponseEntity.ok(response);
@@ -218,14 +672,7 @@ public class InstrumentoController {
             Instrumento instrumentoActualizado = instrumentoService.findById(id)
                     .orElseThrow();
 
-            Double precio;
-            try {
-                precio = instrumentoService.obtenerPrecioActual(instrumentoActualizado);
-            } catch (IllegalStateException e) {
-                precio = 0.0;
-            }
-
-            InstrumentoResponseDTO response = instrumentoMapper.toDTO(instrumentoActualizado, precio);
+            InstrumentoResponseDTO response = instrumentoMapper.toDTO(instrumentoActualizado);
 
             log.info("✅ Precio actualizado. Historial ID: {}", historial.getIdHistorial());
             return ResponseEntity.ok(response);
@@ -242,6 +689,177 @@ public class InstrumentoController {
         }
     }
 
+    /**
+     * Actualizar muchos precios en una sola operación (solo admin): una lista de
+     * (instrumentoId, precio) o un porcentaje, opcionalmente para una categoría
+     */
+    @PostMapping("/precios/lote")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> updatePreciosLote(@Valid @RequestBody ActualizarPreciosLoteDTO dto) {
+        try {
+            log.info("💰 Actualización masiva de precios: {} precio(s), porcentaje={}, categoría={}",
+                    dto.getPrecios() != null ? dto.getPrecios().size() : 0, dto.getPorcentaje(), dto.getIdCategoria());
+
+            ResultadoPreciosLoteDTO resultado = precioLoteService.actualizar(dto);
+            return ResponseEntity.ok(resultado);
+
+        } catch (IllegalArgumentException e) {
+            log.error("❌ Error en la actualización masiva de precios: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(crearRespuestaError(e.getMessage()));
+
+        } catch (Exception e) {
+            log.error("❌ Error inesperado en la actualización masiva de precios", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error interno al actualizar los precios"));
+        }
+    }
+
+    /**
+     * Programar un precio para una fecha futura (solo admin). Sin fecha, o con una fecha
+     * ya pasada, el precio rige desde ahora como en la actualización común.
+     */
+    @PostMapping("/precios/programados")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> programarPrecio(@Valid @RequestBody HistorialPrecioRequestDTO dto) {
+        try {
+            log.info("🗓️ Programando precio ${} para el instrumento {} desde {}",
+                    dto.getPrecio(), dto.getInstrumentoId(), dto.getFechaVigencia());
+
+            HistorialPrecio historial = instrumentoService.programarPrecio(dto);
+            HistorialPrecioResponseDTO response = new HistorialPrecioResponseDTO(
+                    historial.getIdHistorial(),
+                    historial.getInstrumento().getIdInstrumento(),
+                    historial.getInstrumento().getDenominacion(),
+                    historial.getPrecio(),
+                    historial.getFechaVigencia(),
+                    historial.esVigente());
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            log.error("❌ Error al programar precio: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(crearRespuestaError(e.getMessage()));
+
+        } catch (Exception e) {
+            log.error("❌ Error inesperado al programar precio del instrumento {}", dto.getInstrumentoId(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error interno al programar el precio"));
+        }
+    }
+
+    /**
+     * Precio de un instrumento vigente en una fecha y hora (por defecto, ahora).
+     * Con una fecha futura devuelve el precio programado que regirá en ese momento.
+     */
+    @GetMapping("/{id}/precio")
+    public ResponseEntity<?> getPrecioAl(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        try {
+            LocalDateTime momento = fecha != null ? fecha : LocalDateTime.now();
+            Date instante = Date.from(momento.atZone(ZoneId.systemDefault()).toInstant());
+
+            Double precio = instrumentoService.obtenerPrecioAl(id, instante);
+            if (precio == null) {
+                log.warn("⚠️ Instrumento {} sin precio al {}", id, momento);
+                return ResponseEntity.notFound().build();
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("instrumentoId", id);
+            response.put("fecha", instante);
+            response.put("precio", precio);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener el precio del instrumento {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener el precio"));
+        }
+    }
+
+    /**
+     * Instrumentos parecidos por contenido (nombre, descripción, categoría y marca),
+     * precalculados en segundo plano: la búsqueda de vecinos no toca la base
+     */
+    @GetMapping("/{id}/similares")
+    public ResponseEntity<?> getSimilares(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            if (limit < 1 || limit > SimilaresIndex.VECINOS) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El límite debe estar entre 1 y " + SimilaresIndex.VECINOS));
+            }
+
+            List<Long> ids = similaresIndex.similares(id, limit);
+            if (ids.isEmpty() && instrumentoService.findById(id).isEmpty()) {
+                log.warn("⚠️ Instrumento {} no encontrado", id);
+                return ResponseEntity.notFound().build();
+            }
+
+            List<InstrumentoResponseDTO> similares = instrumentoService.findAllByIdEnOrden(ids).stream()
+                    .map(this::toResumenConPrecioActual)
+                    .collect(Collectors.toList());
+
+            log.debug("🧭 {} instrumento(s) similar(es) a {}", similares.size(), id);
+            return ResponseEntity.ok(similares);
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener instrumentos similares a {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener instrumentos similares"));
+        }
+    }
+
+    /**
+     * Serie del historial de precios entre los días from y to, ambos completos: el rango va
+     * desde el comienzo de from hasta el comienzo del día siguiente a to, excluido. Se agrupa
+     * en intervalos con apertura, máximo, mínimo, cierre y promedio. Por defecto, el último año.
+     */
+    @GetMapping("/{id}/precios")
+    public ResponseEntity<?> getSeriePrecios(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "100") int buckets) {
+        try {
+            if (buckets < 1 || buckets > INTERVALOS_MAXIMO) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("La cantidad de intervalos debe estar entre 1 y " + INTERVALOS_MAXIMO));
+            }
+
+            LocalDate hasta = to != null ? to : LocalDate.now();
+            LocalDate desde = from != null ? from : hasta.minusYears(1);
+            ZoneId zona = ZoneId.systemDefault();
+
+            log.info("📈 Serie de precios del instrumento {}: {} a {} en {} intervalo(s)", id, desde, hasta, buckets);
+
+            // El día 'to' se incluye completo: el rango termina al comenzar el día siguiente
+            return historialPrecioService.obtenerSerie(id,
+                    Date.from(desde.atStartOfDay(zona).toInstant()),
+                    Date.from(hasta.plusDays(1).atStartOfDay(zona).toInstant()),
+                    buckets)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> {
+                        log.warn("⚠️ Instrumento {} no encontrado", id);
+                        return ResponseEntity.notFound().build();
+                    });
+
+        } catch (IllegalArgumentException e) {
+            log.error("❌ Parámetros inválidos para la serie de precios: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(crearRespuestaError(e.getMessage()));
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener la serie de precios del instrumento {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener el historial de precios"));
+        }
+    }
+
     /**
      * Reponer stock de un instrumento (solo admin)
      */
@@ -265,14 +883,7 @@ public class InstrumentoController {
             Instrumento instrumentoActualizado = instrumentoService.findById(id)
                     .orElseThrow();
 
-            Double precio;
-            try {
-                precio = instrumentoService.obtenerPrecioActual(instrumentoActualizado);
-            } catch (IllegalStateException e) {
-                precio = 0.0;
-            }
-
-            InstrumentoResponseDTO response = instrumentoMapper.toDTO(instrumentoActualizado, precio);
+            InstrumentoResponseDTO response = instrumentoMapper.toDTO(instrumentoActualizado);
 
             log.info("✅ Stock repuesto correctamente. Nuevo stock: {}", response.getStock());
             return ResponseEntity.ok(response);
@@ -289,6 +900,31 @@ public class InstrumentoController {
         }
     }
 
+    /**
+     * Importar stock desde un CSV (solo admin): idInstrumento,operacion,cantidad con
+     * operacion FIJAR, REPONER o DESCONTAR. Devuelve el detalle de las líneas con error.
+     */
+    @PostMapping(value = "/stock/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> importarStock(@RequestParam("file") MultipartFile file) {
+        try {
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(crearRespuestaError("El archivo está vacío"));
+            }
+
+            log.info("📦 Importando stock desde {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+
+            ResultadoImportacionStockDTO resultado = importacionStockService.importar(file.getInputStream());
+            return ResponseEntity.ok(resultado);
+
+        } catch (Exception e) {
+            log.error("❌ Error al importar el stock", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al importar el archivo de stock"));
+        }
+    }
+
     /**
      * Obtener instrumentos con bajo stock (solo admin)
      */
@@ -298,19 +934,7 @@ public class InstrumentoController {
         try {
             log.info("⚠️ Consultando instrumentos con bajo stock");
 
-            List<Instrumento> instrumentos = instrumentoService.findInstrumentosConBajoStock();
-
-            List<InstrumentoResponseDTO> response = instrumentos.stream()
-                    .map(instr -> {
-                        Double precio;
-                        try {
-                            precio = instrumentoService.obtenerPrecioActual(instr);
-                        } catch (IllegalStateException e) {
-                            precio = 0.0;
-                        }
-                        return instrumentoMapper.toDTO(instr, precio);
-                    })
-                    .collect(Collectors.toList());
+            List<InstrumentoResponseDTO> response = instrumentoService.findInstrumentosConBajoStock();
 
             log.info("✅ Se encontraron {} instrumento(s) con bajo stock", response.size());
             return ResponseEntity.ok(response);
@@ -321,6 +945,77 @@ public class InstrumentoController {
         }
     }
 
+    /**
+     * Suscribirse a las alertas de stock bajo (solo admin), por Server-Sent Events
+     */
+    @GetMapping(value = "/alertas/stock", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public SseEmitter suscribirAlertasStock() {
+        return alertaStockService.suscribir();
+    }
+
+    /**
+     * Contar la visita al detalle, salvo los pedidos sintéticos del calentamiento
+     */
+    private void registrarVista(Long id, WebRequest request) {
+        if (request.getHeader(CalentamientoInicial.CABECERA_CALENTAMIENTO) == null) {
+            popularidadInstrumentos.registrarVista(id);
+        }
+    }
+
+    /**
+     * Convertir a DTO con el precio vigente (0.0 si el instrumento todavía no tiene precio)
+     */
+    private InstrumentoResponseDTO toDTOConPrecioActual(Instrumento instrumento) {
+        return instrumentoMapper.toDTO(instrumento, precioActual(instrumento));
+    }
+
+    /**
+     * Igual que toDTOConPrecioActual pero sin la descripción, para los listados
+     */
+    private InstrumentoResponseDTO toResumenConPrecioActual(Instrumento instrumento) {
+        return instrumentoMapper.toResumenDTO(instrumento, precioActual(instrumento));
+    }
+
+    private Double precioActual(Instrumento instrumento) {
+        try {
+            return instrumentoService.obtenerPrecioActual(instrumento);
+        } catch (IllegalStateException e) {
+            return 0.0;
+        }
+    }
+
+    private FacetasResponseDTO toFacetasDTO(FacetasIndex.ResultadoFacetas resultado,
+            List<InstrumentoResponseDTO> items) {
+        Comparator<FacetasResponseDTO.ConteoFaceta> porCantidad = Comparator
+                .comparingInt(FacetasResponseDTO.ConteoFaceta::getCantidad).reversed()
+                .thenComparing(FacetasResponseDTO.ConteoFaceta::getEtiqueta,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+
+        List<FacetasResponseDTO.ConteoFaceta> categorias = resultado.conteoCategorias().entrySet().stream()
+                .map(e -> new FacetasResponseDTO.ConteoFaceta(String.valueOf(e.getKey()),
+                        resultado.nombresCategorias().get(e.getKey()), e.getValue()))
+                .sorted(porCantidad)
+                .collect(Collectors.toList());
+
+        List<FacetasResponseDTO.ConteoFaceta> marcas = resultado.conteoMarcas().entrySet().stream()
+                .map(e -> new FacetasResponseDTO.ConteoFaceta(e.getKey(), e.getKey(), e.getValue()))
+                .sorted(porCantidad)
+                .collect(Collectors.toList());
+
+        double[] limites = resultado.limitesPrecio();
+        List<FacetasResponseDTO.RangoPrecio> rangos = new ArrayList<>(limites.length + 1);
+        for (int i = 0; i <= limites.length; i++) {
+            rangos.add(new FacetasResponseDTO.RangoPrecio(
+                    i > 0 ? limites[i - 1] : null,
+                    i < limites.length ? limites[i] : null,
+                    resultado.conteoRangosPrecio()[i]));
+        }
+
+        return new FacetasResponseDTO(resultado.total(), items, categorias, marcas, rangos,
+                resultado.cantidadConStock());
+    }
+
     /**
      * Método auxiliar para crear respuestas de error consistentes
      */
@@ -329,4 +1024,4 @@ public class InstrumentoController {
         error.put("error", mensaje);
         return error;
     }
-}
\ No newline at end of file
+}
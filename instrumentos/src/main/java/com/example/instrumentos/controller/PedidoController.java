@@ -8,7 +8,9 @@ import com.example.instrumentos.model.Pedido;
 import com.example.instrumentos.model.Rol;
 import com.example.instrumentos.model.Usuario;
 import com.example.instrumentos.service.PedidoService;
+import com.example.instrumentos.service.ProyeccionCamposService;
 import com.example.instrumentos.service.UsuarioService;
+import com.example.instrumentos.util.CamposSolicitados;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -37,13 +39,19 @@ public class PedidoController {
     private final PedidoService pedidoService;
     private final PedidoMapper pedidoMapper;
     private final UsuarioService usuarioService;
+    private final ProyeccionCamposService proyeccionCamposService;
 
     /**
-     * Obtener todos los pedidos (solo admin)
+     * Obtener todos los pedidos (solo admin). Con fields (por ejemplo
+     * "id,fecha,total,detalles.cantidad,detalles.instrumento.denominacion") solo se leen
+     * y devuelven esos campos.
      */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<PedidoResponseDTO>> getAllPedidos() {
+    public ResponseEntity<?> getAllPedidos(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return getPedidosConCampos(fields, null, null);
+        }
         try {
             List<Pedido> pedidos = pedidoService.findAll();
             List<PedidoResponseDTO> response = pedidos.stream()
@@ -61,7 +69,9 @@ public class PedidoController {
      */
     @GetMapping("/usuario/{usuarioId}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<PedidoResponseDTO>> getPedidosByUsuario(@PathVariable Long usuarioId) {
+    public ResponseEntity<?> getPedidosByUsuario(
+            @PathVariable Long usuarioId,
+            @RequestParam(required = false) String fields) {
 
         // Los admin pueden ver pedidos de cualquier usuario, los clientes solo los
         // suyos
@@ -72,6 +82,10 @@ public class PedidoController {
             // coincida con el usuario autenticado
         }
 
+        if (fields != null) {
+            return getPedidosConCampos(fields, usuarioId, null);
+        }
+
         try {
             log.info("📦 Obteniendo pedidos del usuario: {}", usuarioId);
             List<Pedido> pedidos = pedidoService.findByUsuarioId(usuarioId);
@@ -91,7 +105,12 @@ public class PedidoController {
      */
     @GetMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<?> getPedidoById(@PathVariable Long id) {
+    public ResponseEntity<?> getPedidoById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return getPedidosConCampos(fields, null, id);
+        }
         try {
             log.info("📄 Consultando pedido ID: {}", id);
             return pedidoService.findById(id)
@@ -111,6 +130,36 @@ public class PedidoController {
         }
     }
 
+    /**
+     * Pedidos con solo los campos pedidos: la consulta lee únicamente esas columnas y
+     * los detalles (si se piden) salen de una sola consulta para todos los pedidos
+     */
+    private ResponseEntity<?> getPedidosConCampos(String fields, Long usuarioId, Long idPedido) {
+        try {
+            CamposSolicitados campos = CamposSolicitados.parsear(fields);
+            log.info("📦 Obteniendo pedidos con campos [{}]", campos);
+
+            List<Map<String, Object>> pedidos = proyeccionCamposService.pedidos(campos, usuarioId, idPedido);
+            if (idPedido != null) {
+                if (pedidos.isEmpty()) {
+                    log.warn("⚠️ Pedido {} no encontrado", idPedido);
+                    return ResponseEntity.notFound().build();
+                }
+                return ResponseEntity.ok(pedidos.get(0));
+            }
+            return ResponseEntity.ok(pedidos);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(crearRespuestaError(e.getMessage()));
+
+        } catch (Exception e) {
+            log.error("❌ Error al obtener pedidos con campos '{}'", fields, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(crearRespuestaError("Error al obtener los pedidos"));
+        }
+    }
+
     /**
      * Crear un nuevo pedido - BLOQUEADO PARA ADMIN
      */
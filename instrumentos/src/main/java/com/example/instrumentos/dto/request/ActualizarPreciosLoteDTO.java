@@ -0,0 +1,42 @@
+package com.example.instrumentos.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Actualización masiva de precios: una lista explícita de (instrumento, precio) o una
+ * regla porcentual (por ejemplo +8% o -5%), opcionalmente limitada a una categoría.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActualizarPreciosLoteDTO {
+
+    @Valid
+    private List<PrecioInstrumento> precios;
+
+    // Regla: variación porcentual sobre el precio vigente
+    @DecimalMin(value = "-99.99", message = "El porcentaje debe ser mayor a -100")
+    private Double porcentaje;
+
+    // Solo para la regla porcentual; si no se envía se aplica a todo el catálogo
+    private Long idCategoria;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PrecioInstrumento {
+        @NotNull(message = "El ID del instrumento es obligatorio")
+        private Long instrumentoId;
+
+        @NotNull(message = "El precio es obligatorio")
+        @DecimalMin(value = "0.01", message = "El precio debe ser mayor a 0")
+        private Double precio;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.instrumentos.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Consulta de precio y stock de varios instrumentos a la vez (por ejemplo, los del carrito)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsultaLoteDTO {
+
+    public static final int MAX_ITEMS = 500;
+
+    @NotEmpty(message = "Debe enviarse al menos un instrumento")
+    @Size(max = MAX_ITEMS, message = "Se pueden consultar hasta " + MAX_ITEMS + " instrumentos por vez")
+    @Valid
+    private List<ItemConsulta> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemConsulta {
+        @NotNull(message = "El ID del instrumento es obligatorio")
+        private Long instrumentoId;
+
+        // Opcional: si no se envía se verifica que haya al menos una unidad
+        @Min(value = 1, message = "La cantidad debe ser mayor a 0")
+        private Integer cantidad;
+    }
+}
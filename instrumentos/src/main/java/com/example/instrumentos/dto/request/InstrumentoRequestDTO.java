@@ -33,4 +33,8 @@ public class InstrumentoRequestDTO {
 
     @NotNull(message = "La categoría es obligatoria")
     private Long categoriaId;
+
+    // Opcional: si no se envía se usa el umbral de la categoría
+    @Min(value = 0, message = "El umbral de stock bajo no puede ser negativo")
+    private Integer umbralStockBajo;
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambiosCatalogoDTO {
+    // Secuencia hasta la que llega esta respuesta: el próximo pedido va con desde=hasta
+    private long hasta;
+    // El registro ya no tiene los cambios pedidos: volver a cargar el catálogo completo
+    private boolean resincronizar;
+    private boolean hayMas;
+    private List<InstrumentoResponseDTO> modificados;
+    private List<Long> eliminados;
+}
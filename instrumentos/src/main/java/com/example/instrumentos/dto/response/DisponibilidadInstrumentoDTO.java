@@ -0,0 +1,32 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadInstrumentoDTO {
+    private Long idInstrumento;
+    private boolean encontrado;
+    private String denominacion;
+    private String imagen;
+    private Double precioActual;
+    private Integer stock;
+    private Integer cantidadSolicitada;
+    private boolean disponible;
+
+    // Constructor para la proyección JPQL (SELECT new ...); el resto lo completa el servicio
+    public DisponibilidadInstrumentoDTO(Long idInstrumento, String denominacion, String imagen, Integer stock,
+            Double precioActual) {
+        this(idInstrumento, true, denominacion, imagen, precioActual, stock, null, false);
+    }
+
+    /**
+     * Entrada para un id que no existe (o fue eliminado mientras estaba en el carrito)
+     */
+    public static DisponibilidadInstrumentoDTO noEncontrado(Long idInstrumento, Integer cantidadSolicitada) {
+        return new DisponibilidadInstrumentoDTO(idInstrumento, false, null, null, null, null, cantidadSolicitada, false);
+    }
+}
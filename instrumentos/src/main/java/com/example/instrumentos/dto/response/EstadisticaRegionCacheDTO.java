@@ -0,0 +1,17 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaRegionCacheDTO {
+    private String region;
+    private Long aciertos;
+    private Long fallos;
+    private Long escrituras;
+    private Double tasaAciertos; // entre 0 y 1; null si todavía no hubo lecturas
+    private Long elementosEnMemoria; // null si el proveedor no lo informa
+}
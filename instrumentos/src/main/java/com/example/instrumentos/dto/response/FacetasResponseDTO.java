@@ -0,0 +1,40 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetasResponseDTO {
+    // Cantidad total de instrumentos que cumplen todos los filtros
+    private int total;
+    private List<InstrumentoResponseDTO> items;
+    // Cada conteo aplica el resto de los filtros pero no el de su propia faceta
+    private List<ConteoFaceta> categorias;
+    private List<ConteoFaceta> marcas;
+    private List<RangoPrecio> rangosPrecio;
+    private int conStock;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ConteoFaceta {
+        private String valor;
+        private String etiqueta;
+        private int cantidad;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RangoPrecio {
+        // null en el primer y en el último rango (abiertos)
+        private Double desde;
+        private Double hasta;
+        private int cantidad;
+    }
+}
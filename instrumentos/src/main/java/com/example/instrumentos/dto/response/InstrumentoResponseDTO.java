@@ -1,5 +1,6 @@
 package com.example.instrumentos.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,8 +13,17 @@ public class InstrumentoResponseDTO {
     private String denominacion;
     private String marca;
     private Integer stock;
+    // Solo en el detalle (GET /instrumentos/{id}); los listados no la incluyen
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String descripcion;
     private String imagen;
     private Double precioActual;
     private CategoriaResponseDTO categoriaInstrumento;
+
+    // Constructor plano para las proyecciones JPQL (SELECT new ...), que no admiten objetos anidados
+    public InstrumentoResponseDTO(Long idInstrumento, String denominacion, String marca, Integer stock,
+            String imagen, Double precioActual, Long idCategoria, String categoria) {
+        this(idInstrumento, denominacion, marca, stock, null, imagen, precioActual,
+                new CategoriaResponseDTO(idCategoria, categoria));
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaResponseDTO<T> {
+    private List<T> items;
+    // Cursor opaco para pedir la página siguiente (null si no hay más)
+    private String siguienteCursor;
+    private boolean hayMas;
+}
@@ -0,0 +1,29 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacionStockDTO {
+    private int lineasProcesadas;
+    private int lineasAplicadas;
+    private int lineasConError;
+    private int instrumentosActualizados;
+    // Se informan como máximo los primeros errores; erroresTruncados indica si hubo más
+    private List<ErrorLinea> errores;
+    private boolean erroresTruncados;
+    private long duracionMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ErrorLinea {
+        private int linea;
+        private String mensaje;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoPreciosLoteDTO {
+    private int solicitados;
+    private int actualizados;
+    // Precio igual al vigente (diferencia menor a un centavo): no se crea historial
+    private int sinCambios;
+    private int noEncontrados;
+    // Primeros ids inexistentes, para revisar el archivo de origen
+    private List<Long> idsNoEncontrados;
+    private long duracionMs;
+}
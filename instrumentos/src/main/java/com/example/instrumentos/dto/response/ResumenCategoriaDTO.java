@@ -0,0 +1,19 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenCategoriaDTO {
+    private Long idCategoriaInstrumento;
+    private String denominacion;
+    private Integer cantidadInstrumentos;
+    private Integer cantidadConStock;
+    // Sin instrumentos no hay rango de precios (null)
+    private Double precioMinimo;
+    private Double precioMaximo;
+    private Double precioPromedio;
+}
@@ -0,0 +1,35 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeriePreciosResponseDTO {
+    private Long instrumentoId;
+    private Date desde;
+    private Date hasta;
+    // Cantidad de registros del historial que cayeron en el rango
+    private long registros;
+    // Intervalos desde el primero con precio vigente; los que no tienen cambios (cantidad 0) repiten el cierre anterior
+    private List<IntervaloPrecio> intervalos;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class IntervaloPrecio {
+        private Date inicio;
+        private Date fin;
+        private Double apertura;
+        private Double maximo;
+        private Double minimo;
+        private Double cierre;
+        private Double promedio;
+        private int cantidad;
+    }
+}
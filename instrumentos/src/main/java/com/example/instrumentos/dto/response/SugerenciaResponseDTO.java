@@ -0,0 +1,14 @@
+package com.example.instrumentos.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugerenciaResponseDTO {
+    private String texto;
+    private String tipo; // NOMBRE o MARCA
+    private Integer cantidadInstrumentos;
+}
@@ -0,0 +1,7 @@
+package com.example.instrumentos.event;
+
+/**
+ * Evento publicado por CategoriaService al crear, modificar o eliminar una categoría
+ */
+public record CategoriaModificadaEvent(Long idCategoria) {
+}
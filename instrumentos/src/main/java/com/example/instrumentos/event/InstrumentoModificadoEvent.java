@@ -0,0 +1,21 @@
+package com.example.instrumentos.event;
+
+/**
+ * Evento publicado por InstrumentoService en cada escritura sobre un instrumento.
+ * Los índices y cachés en memoria lo escuchan después del commit para mantenerse al día.
+ * En los cambios de stock puede traer el stock nuevo, para no tener que releerlo.
+ */
+public record InstrumentoModificadoEvent(Long idInstrumento, TipoCambio tipo, Integer stock) {
+
+    public InstrumentoModificadoEvent(Long idInstrumento, TipoCambio tipo) {
+        this(idInstrumento, tipo, null);
+    }
+
+    public enum TipoCambio {
+        CREADO,
+        ACTUALIZADO,
+        ELIMINADO,
+        PRECIO,
+        STOCK
+    }
+}
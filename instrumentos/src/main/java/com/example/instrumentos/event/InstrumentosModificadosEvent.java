@@ -0,0 +1,32 @@
+package com.example.instrumentos.event;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evento publicado por los lotes JDBC (precios, stock, precios programados) con todos los
+ * instrumentos que cambiaron en una misma transacción. Los oyentes lo procesan de una vez:
+ * una sola invalidación de cachés y una sola entrada en el registro de cambios, en lugar de
+ * un InstrumentoModificadoEvent por fila. Solo se usa para cambios de precio o de stock.
+ * En los de stock trae el stock nuevo de cada instrumento.
+ */
+public record InstrumentosModificadosEvent(TipoCambio tipo, List<Long> idsInstrumento, Map<Long, Integer> stocks) {
+
+    public InstrumentosModificadosEvent {
+        if (tipo != TipoCambio.PRECIO && tipo != TipoCambio.STOCK) {
+            throw new IllegalArgumentException("Un lote solo puede ser de cambios de precio o de stock: " + tipo);
+        }
+        idsInstrumento = List.copyOf(idsInstrumento);
+        stocks = stocks != null ? Map.copyOf(stocks) : Map.of();
+    }
+
+    public static InstrumentosModificadosEvent precios(List<Long> idsInstrumento) {
+        return new InstrumentosModificadosEvent(TipoCambio.PRECIO, idsInstrumento, null);
+    }
+
+    public static InstrumentosModificadosEvent stocks(Map<Long, Integer> stockPorId) {
+        return new InstrumentosModificadosEvent(TipoCambio.STOCK, List.copyOf(stockPorId.keySet()), stockPorId);
+    }
+}
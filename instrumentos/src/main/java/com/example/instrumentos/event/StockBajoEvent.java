@@ -0,0 +1,8 @@
+package com.example.instrumentos.event;
+
+/**
+ * Evento publicado cuando el stock de un instrumento cruza hacia abajo su umbral de stock bajo.
+ * Se entrega a los administradores suscriptos después del commit.
+ */
+public record StockBajoEvent(Long idInstrumento, String denominacion, int stock, int umbral) {
+}
@@ -17,6 +17,7 @@ public class InstrumentoMapper {
         instrumento.setStock(dto.getStock());
         instrumento.setDescripcion(dto.getDescripcion());
         instrumento.setImagen(dto.getImagen());
+        instrumento.setUmbralStockBajo(dto.getUmbralStockBajo());
 
         // La categoría se asigna en el servicio
         CategoriaInstrumento categoria = new CategoriaInstrumento();
@@ -26,9 +27,27 @@ public class InstrumentoMapper {
         return instrumento;
     }
 
+    // Usa el precio desnormalizado de la entidad (0.0 si todavía no fue completado)
+    public InstrumentoResponseDTO toDTO(Instrumento instrumento) {
+        Double precioActual = instrumento.getPrecioActual() != null ? instrumento.getPrecioActual() : 0.0;
+        return toDTO(instrumento, precioActual);
+    }
+
+    public InstrumentoResponseDTO toResumenDTO(Instrumento instrumento) {
+        Double precioActual = instrumento.getPrecioActual() != null ? instrumento.getPrecioActual() : 0.0;
+        return toResumenDTO(instrumento, precioActual);
+    }
+
     // Nuevo: recibe el precioActual calculado externamente (en el
     // servicio/controlador)
     public InstrumentoResponseDTO toDTO(Instrumento instrumento, Double precioActual) {
+        InstrumentoResponseDTO dto = toResumenDTO(instrumento, precioActual);
+        dto.setDescripcion(instrumento.getDescripcion());
+        return dto;
+    }
+
+    // Para listados y pedidos: sin la descripción, así no se dispara su carga perezosa
+    public InstrumentoResponseDTO toResumenDTO(Instrumento instrumento, Double precioActual) {
         CategoriaResponseDTO categoriaDTO = null;
         if (instrumento.getCategoriaInstrumento() != null) {
             categoriaDTO = new CategoriaResponseDTO(
@@ -41,7 +60,7 @@ public class InstrumentoMapper {
                 instrumento.getDenominacion(),
                 instrumento.getMarca(),
                 instrumento.getStock(),
-                instrumento.getDescripcion(),
+                null,
                 instrumento.getImagen(),
                 precioActual,
                 categoriaDTO);
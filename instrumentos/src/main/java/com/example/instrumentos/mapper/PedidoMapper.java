@@ -72,8 +72,8 @@ public class PedidoMapper {
             precioUnitario = 0.0; // fallback para pedidos antiguos sin precio persistido
         }
 
-        // Construir el DTO del instrumento usando ese precio
-        InstrumentoResponseDTO instrumentoDTO = instrumentoMapper.toDTO(detalle.getInstrumento(), precioUnitario);
+        // Construir el DTO del instrumento usando ese precio (sin la descripción, que no se lee)
+        InstrumentoResponseDTO instrumentoDTO = instrumentoMapper.toResumenDTO(detalle.getInstrumento(), precioUnitario);
 
         Double subtotal = precioUnitario * detalle.getCantidad();
 
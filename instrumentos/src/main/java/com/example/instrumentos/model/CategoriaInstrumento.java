@@ -1,14 +1,18 @@
 package com.example.instrumentos.model;
 
+import com.example.instrumentos.config.CacheSegundoNivelConfig;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGION_CATEGORIAS)
 @Table(name = "categorias_instrumento")
 @Data
 @NoArgsConstructor
@@ -22,6 +26,10 @@ public class CategoriaInstrumento {
     @Column(name = "denominacion", nullable = false, unique = true)
     private String denominacion;
 
+    // Umbral de stock bajo para los instrumentos de la categoría que no definen uno propio
+    @Column(name = "umbral_stock_bajo")
+    private Integer umbralStockBajo;
+
     // Relación con Instrumentos
     @OneToMany(mappedBy = "categoriaInstrumento", cascade = CascadeType.ALL)
     @JsonIgnore
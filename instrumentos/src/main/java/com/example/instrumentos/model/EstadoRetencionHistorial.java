@@ -0,0 +1,26 @@
+package com.example.instrumentos.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Punto de retoma de la compactación del historial de precios (una sola fila, id 1).
+ * Lo escribe HistorialRetencionJob en la misma transacción que cada bloque, así una
+ * pasada interrumpida, incluso por un reinicio, sigue desde el último bloque confirmado.
+ */
+@Entity
+@Table(name = "estado_retencion_historial")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadoRetencionHistorial {
+
+    @Id
+    private Integer id;
+
+    // Último instrumento compactado de la pasada en curso (0 = empezar desde el principio)
+    @Column(name = "ultimo_procesado", nullable = false)
+    private Long ultimoProcesado = 0L;
+}
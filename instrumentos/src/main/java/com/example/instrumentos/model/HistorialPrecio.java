@@ -10,7 +10,10 @@ import lombok.ToString;
 import java.util.Date;
 
 @Entity
-@Table(name = "historial_precio_instrumento")
+@Table(name = "historial_precio_instrumento", indexes = {
+        // Rango por fecha del historial de un instrumento (serie de precios)
+        @Index(name = "idx_historial_instrumento_fecha", columnList = "id_instrumento, fecha_vigencia")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -1,17 +1,29 @@
 package com.example.instrumentos.model;
 
+import com.example.instrumentos.config.CacheSegundoNivelConfig;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "instrumentos")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGION_INSTRUMENTOS)
+@Table(name = "instrumentos", indexes = {
+        // Índices para la paginación por clave del catálogo (orden + desempate por id)
+        @Index(name = "idx_instrumento_denominacion", columnList = "denominacion, id_instrumento"),
+        @Index(name = "idx_instrumento_precio_actual", columnList = "precio_actual, id_instrumento"),
+        @Index(name = "idx_instrumento_stock", columnList = "stock, id_instrumento"),
+        @Index(name = "idx_instrumento_umbral_stock", columnList = "umbral_stock_bajo"),
+        // Listado por categoría y verificación de categoría en uso antes de eliminarla
+        @Index(name = "idx_instrumento_categoria", columnList = "id_categoria_instrumento")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,12 +42,22 @@ public class Instrumento {
     @Column(nullable = false)
     private Integer stock = 0;
 
+    // Solo la usa el detalle: se lee aparte, al primer acceso (requiere la mejora de bytecode)
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "TEXT")
     private String descripcion;
 
     @Column(name = "imagen")
     private String imagen;
 
+    // Precio vigente desnormalizado; se escribe junto con cada nuevo HistorialPrecio
+    @Column(name = "precio_actual")
+    private Double precioActual;
+
+    // Umbral de stock bajo propio; si es null se usa el de la categoría
+    @Column(name = "umbral_stock_bajo")
+    private Integer umbralStockBajo;
+
     // Relación con CategoriaInstrumento
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "id_categoria_instrumento", nullable = false)
@@ -0,0 +1,29 @@
+package com.example.instrumentos.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totales de popularidad de un instrumento. Se escriben solo desde PopularidadInstrumentos,
+ * que acumula en memoria y suma los incrementos en lote; sin clave foránea, para que las
+ * bajas de instrumentos no dependan de esta tabla.
+ */
+@Entity
+@Table(name = "popularidad_instrumento")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PopularidadInstrumento {
+
+    @Id
+    @Column(name = "id_instrumento")
+    private Long idInstrumento;
+
+    @Column(nullable = false)
+    private Long vistas = 0L;
+
+    @Column(name = "lineas_pedido", nullable = false)
+    private Long lineasPedido = 0L;
+}
@@ -1,13 +1,36 @@
 package com.example.instrumentos.repository;
 
 import com.example.instrumentos.model.CategoriaInstrumento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoriaInstrumentoRepository extends JpaRepository<CategoriaInstrumento, Long> {
+
+    // Listado completo desde la caché de consultas; se invalida solo con cada escritura en la tabla
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<CategoriaInstrumento> findAll();
+
     Optional<CategoriaInstrumento> findByDenominacion(String denominacion);
     boolean existsByDenominacion(String denominacion);
+
+    /**
+     * Baja directa, sin cargar la colección de instrumentos que recorrería el cascade
+     */
+    @Modifying
+    @Query("DELETE FROM CategoriaInstrumento c WHERE c.idCategoriaInstrumento = :id")
+    int eliminarPorId(@Param("id") Long id);
+
+    @Query("SELECT MAX(c.umbralStockBajo) FROM CategoriaInstrumento c")
+    Integer findMaxUmbralStockBajo();
 }
@@ -1,12 +1,23 @@
 package com.example.instrumentos.repository;
 
 import com.example.instrumentos.model.DetallePedido;
+import com.example.instrumentos.model.EstadoPedido;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DetallePedidoRepository extends JpaRepository<DetallePedido, Long> {
     List<DetallePedido> findByPedido_IdPedido(Long idPedido);
+
+    /**
+     * Unidades vendidas por instrumento (id, suma de cantidades) en pedidos con los estados dados
+     */
+    @Query("SELECT d.instrumento.idInstrumento, SUM(d.cantidad) FROM DetallePedido d " +
+            "WHERE d.pedido.estado IN :estados GROUP BY d.instrumento.idInstrumento")
+    List<Object[]> sumarCantidadesVendidas(@Param("estados") Collection<EstadoPedido> estados);
 }
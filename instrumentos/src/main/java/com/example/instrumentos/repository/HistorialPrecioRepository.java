@@ -2,29 +2,38 @@ package com.example.instrumentos.repository;
 
 import com.example.instrumentos.model.HistorialPrecio;
 import com.example.instrumentos.model.Instrumento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface HistorialPrecioRepository extends JpaRepository<HistorialPrecio, Long> {
 
     /**
-     * Obtener el precio más reciente (vigente) de un instrumento
+     * Obtener el precio que regía en una fecha: el último registro con fecha de vigencia
+     * menor o igual (los precios programados a futuro no cuentan hasta su fecha)
      */
-    Optional<HistorialPrecio> findFirstByInstrumentoOrderByFechaVigenciaDesc(Instrumento instrumento);
+    @Query("SELECT h FROM HistorialPrecio h WHERE h.instrumento.idInstrumento = :instrumentoId " +
+            "AND h.fechaVigencia <= :fecha " +
+            "ORDER BY h.fechaVigencia DESC, h.idHistorial DESC LIMIT 1")
+    Optional<HistorialPrecio> findPrecioVigenteAl(@Param("instrumentoId") Long instrumentoId,
+            @Param("fecha") Date fecha);
 
     /**
      * Obtener el precio vigente de un instrumento por ID
      */
-    @Query("SELECT h FROM HistorialPrecio h WHERE h.instrumento.idInstrumento = :instrumentoId " +
-            "ORDER BY h.fechaVigencia DESC LIMIT 1")
-    Optional<HistorialPrecio> findPrecioVigenteByInstrumentoId(@Param("instrumentoId") Long instrumentoId);
+    default Optional<HistorialPrecio> findPrecioVigenteByInstrumentoId(Long instrumentoId) {
+        return findPrecioVigenteAl(instrumentoId, new Date());
+    }
 
     /**
      * Obtener todo el historial de un instrumento ordenado por fecha
@@ -42,6 +51,25 @@ public interface HistorialPrecioRepository extends JpaRepository<HistorialPrecio
             @Param("fechaInicio") Date fechaInicio,
             @Param("fechaFin") Date fechaFin);
 
+    /**
+     * Recorrer fecha y precio del historial entre fechas [inicio, fin) en orden cronológico, sin
+     * armar entidades. Con useCursorFetch=true en la URL de MySQL el driver trae las filas en
+     * bloques del fetch size en lugar de cargar todo el resultado en memoria.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @Query("SELECT h.fechaVigencia, h.precio FROM HistorialPrecio h " +
+            "WHERE h.instrumento.idInstrumento = :instrumentoId " +
+            "AND h.fechaVigencia >= :fechaInicio AND h.fechaVigencia < :fechaFin " +
+            "ORDER BY h.fechaVigencia, h.idHistorial")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamPuntosByInstrumentoIdAndFechaBetween(
+            @Param("instrumentoId") Long instrumentoId,
+            @Param("fechaInicio") Date fechaInicio,
+            @Param("fechaFin") Date fechaFin);
+
     /**
      * Verificar si existe un precio para un instrumento en una fecha específica
      */
@@ -53,11 +81,29 @@ public interface HistorialPrecioRepository extends JpaRepository<HistorialPrecio
             @Param("fecha") Date fecha);
 
     /**
-     * Obtener todos los precios vigentes (útil para reportes)
+     * Obtener el precio de cada instrumento vigente en una fecha (útil para reportes)
+     */
+    @Query("SELECT h FROM HistorialPrecio h WHERE h.fechaVigencia <= :fecha AND NOT EXISTS " +
+            "(SELECT h2 FROM HistorialPrecio h2 WHERE h2.instrumento = h.instrumento " +
+            "AND h2.fechaVigencia <= :fecha AND (h2.fechaVigencia > h.fechaVigencia " +
+            "OR (h2.fechaVigencia = h.fechaVigencia AND h2.idHistorial > h.idHistorial)))")
+    List<HistorialPrecio> findAllPreciosVigentesAl(@Param("fecha") Date fecha);
+
+    default List<HistorialPrecio> findAllPreciosVigentes() {
+        return findAllPreciosVigentesAl(new Date());
+    }
+
+    /**
+     * Recorrer todo el historial (instrumento, fecha, precio) ordenado por instrumento y fecha,
+     * para armar la línea de tiempo en memoria sin crear entidades
      */
-    @Query("SELECT h FROM HistorialPrecio h WHERE h.idHistorial IN " +
-            "(SELECT MAX(h2.idHistorial) FROM HistorialPrecio h2 GROUP BY h2.instrumento)")
-    List<HistorialPrecio> findAllPreciosVigentes();
+    @Query("SELECT h.instrumento.idInstrumento, h.fechaVigencia, h.precio FROM HistorialPrecio h " +
+            "ORDER BY h.instrumento.idInstrumento, h.fechaVigencia, h.idHistorial")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamLineaDeTiempo();
 
     /**
      * Obtener instrumentos sin historial de precios
@@ -1,24 +1,156 @@
 package com.example.instrumentos.repository;
 
+import com.example.instrumentos.dto.response.DisponibilidadInstrumentoDTO;
+import com.example.instrumentos.dto.response.InstrumentoResponseDTO;
 import com.example.instrumentos.model.Instrumento;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface InstrumentoRepository extends JpaRepository<Instrumento, Long> {
 
+    // El precio sale de precio_actual / PrecioActualIndex, así que no se trae el historial
     @Override
-    @Query("SELECT DISTINCT i FROM Instrumento i LEFT JOIN FETCH i.historialPrecios")
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento")
     List<Instrumento> findAll();
 
-    @Query("SELECT DISTINCT i FROM Instrumento i LEFT JOIN FETCH i.historialPrecios WHERE i.categoriaInstrumento.idCategoriaInstrumento = :idCategoria")
-    List<Instrumento> findByCategoriaInstrumento_IdCategoriaInstrumento(Long idCategoria);
+    // Usa el índice de la clave foránea: no depende de cuántos instrumentos tenga la categoría
+    boolean existsByCategoriaInstrumento_IdCategoriaInstrumento(Long idCategoria);
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento c WHERE c.idCategoriaInstrumento = :idCategoria")
+    List<Instrumento> findByCategoriaInstrumento_IdCategoriaInstrumento(@Param("idCategoria") Long idCategoria);
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento WHERE i.idInstrumento IN :ids")
+    List<Instrumento> findAllByIdConCategoria(@Param("ids") Collection<Long> ids);
 
     @Query("SELECT i FROM Instrumento i LEFT JOIN FETCH i.historialPrecios WHERE i.idInstrumento = :id")
     Optional<Instrumento> findByIdWithHistorialPrecios(@Param("id") Long id);
+
+    // --- Proyecciones para los listados: solo las columnas del DTO, sin entidades administradas ---
+
+    // Precio: la columna desnormalizada, que PrecioActualBackfill sincroniza al iniciar
+    // y PreciosProgramadosJob mantiene al activarse los precios programados.
+    // Sin la descripción (TEXT): solo la devuelve el detalle de un instrumento
+    String PROYECCION_DTO = "SELECT new com.example.instrumentos.dto.response.InstrumentoResponseDTO(" +
+            "i.idInstrumento, i.denominacion, i.marca, i.stock, i.imagen, " +
+            "COALESCE(i.precioActual, 0.0), c.idCategoriaInstrumento, c.denominacion) " +
+            "FROM Instrumento i JOIN i.categoriaInstrumento c ";
+
+    @Query(PROYECCION_DTO + "ORDER BY i.idInstrumento")
+    List<InstrumentoResponseDTO> findAllDTO();
+
+    @Query(PROYECCION_DTO + "WHERE c.idCategoriaInstrumento = :idCategoria ORDER BY i.idInstrumento")
+    List<InstrumentoResponseDTO> findDTOByCategoria(@Param("idCategoria") Long idCategoria);
+
+    /**
+     * Instrumentos debajo de su umbral efectivo (propio, de la categoría o el por defecto).
+     * La condición stock < umbralMaximo permite recorrer solo el tramo bajo del índice de stock.
+     */
+    @Query(PROYECCION_DTO + "WHERE i.stock < :umbralMaximo " +
+            "AND i.stock < COALESCE(i.umbralStockBajo, c.umbralStockBajo, :umbralDefecto) " +
+            "ORDER BY i.stock, i.idInstrumento")
+    List<InstrumentoResponseDTO> findDTOConBajoStock(@Param("umbralMaximo") int umbralMaximo,
+            @Param("umbralDefecto") int umbralDefecto);
+
+    @Query("SELECT MAX(i.umbralStockBajo) FROM Instrumento i")
+    Integer findMaxUmbralStockBajo();
+
+    /**
+     * Precio y stock de varios instrumentos en una sola consulta (revalidación del carrito)
+     */
+    @Query("SELECT new com.example.instrumentos.dto.response.DisponibilidadInstrumentoDTO(" +
+            "i.idInstrumento, i.denominacion, i.imagen, i.stock, i.precioActual) " +
+            "FROM Instrumento i WHERE i.idInstrumento IN :ids")
+    List<DisponibilidadInstrumentoDTO> findDisponibilidadByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Textos, marca y categoría de cada instrumento, para calcular los similares
+     */
+    @Query("SELECT i.idInstrumento, i.denominacion, i.descripcion, i.marca, " +
+            "i.categoriaInstrumento.idCategoriaInstrumento FROM Instrumento i")
+    List<Object[]> findTextosSimilares();
+
+    @Query("SELECT i.idInstrumento, i.denominacion, i.descripcion, i.marca, " +
+            "i.categoriaInstrumento.idCategoriaInstrumento FROM Instrumento i WHERE i.idInstrumento IN :ids")
+    List<Object[]> findTextosSimilaresByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Textos de búsqueda (id, denominación, marca y descripción), sin cargar entidades:
+     * la descripción es perezosa y fuera de una transacción no se podría inicializar
+     */
+    @Query("SELECT i.idInstrumento, i.denominacion, i.marca, i.descripcion FROM Instrumento i")
+    List<Object[]> findTextosBusqueda();
+
+    @Query("SELECT i.idInstrumento, i.denominacion, i.marca, i.descripcion FROM Instrumento i " +
+            "WHERE i.idInstrumento = :id")
+    List<Object[]> findTextosBusquedaById(@Param("id") Long id);
+
+    /**
+     * Id, denominación y marca de todo el catálogo, para el índice de sugerencias
+     */
+    @Query("SELECT i.idInstrumento, i.denominacion, i.marca FROM Instrumento i")
+    List<Object[]> findTextosSugerencias();
+
+    // --- Paginación por clave (keyset): primera página y páginas siguientes por cada orden ---
+    // Los instrumentos sin precio ordenan como precio 0, para que ninguno quede fuera del recorrido
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento c " +
+            "WHERE (:idCategoria IS NULL OR c.idCategoriaInstrumento = :idCategoria) " +
+            "ORDER BY i.denominacion, i.idInstrumento")
+    List<Instrumento> findPaginaPorNombre(@Param("idCategoria") Long idCategoria, Pageable pageable);
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento c " +
+            "WHERE (:idCategoria IS NULL OR c.idCategoriaInstrumento = :idCategoria) " +
+            "AND (i.denominacion > :denominacion OR (i.denominacion = :denominacion AND i.idInstrumento > :id)) " +
+            "ORDER BY i.denominacion, i.idInstrumento")
+    List<Instrumento> findPaginaPorNombreDespuesDe(@Param("idCategoria") Long idCategoria,
+            @Param("denominacion") String denominacion, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento c " +
+            "WHERE (:idCategoria IS NULL OR c.idCategoriaInstrumento = :idCategoria) " +
+            "ORDER BY COALESCE(i.precioActual, 0.0), i.idInstrumento")
+    List<Instrumento> findPaginaPorPrecio(@Param("idCategoria") Long idCategoria, Pageable pageable);
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento c " +
+            "WHERE (:idCategoria IS NULL OR c.idCategoriaInstrumento = :idCategoria) " +
+            "AND (COALESCE(i.precioActual, 0.0) > :precio " +
+            "OR (COALESCE(i.precioActual, 0.0) = :precio AND i.idInstrumento > :id)) " +
+            "ORDER BY COALESCE(i.precioActual, 0.0), i.idInstrumento")
+    List<Instrumento> findPaginaPorPrecioDespuesDe(@Param("idCategoria") Long idCategoria,
+            @Param("precio") Double precio, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento c " +
+            "WHERE (:idCategoria IS NULL OR c.idCategoriaInstrumento = :idCategoria) " +
+            "ORDER BY i.stock, i.idInstrumento")
+    List<Instrumento> findPaginaPorStock(@Param("idCategoria") Long idCategoria, Pageable pageable);
+
+    @Query("SELECT i FROM Instrumento i JOIN FETCH i.categoriaInstrumento c " +
+            "WHERE (:idCategoria IS NULL OR c.idCategoriaInstrumento = :idCategoria) " +
+            "AND (i.stock > :stock OR (i.stock = :stock AND i.idInstrumento > :id)) " +
+            "ORDER BY i.stock, i.idInstrumento")
+    List<Instrumento> findPaginaPorStockDespuesDe(@Param("idCategoria") Long idCategoria,
+            @Param("stock") Integer stock, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Alinear precio_actual con el precio del historial vigente en la fecha dada: completa las
+     * filas previas a la columna y aplica los precios programados que vencieron con la aplicación detenida
+     */
+    @Modifying
+    @Query("UPDATE Instrumento i SET i.precioActual = " +
+            "(SELECT h.precio FROM HistorialPrecio h WHERE h.instrumento = i AND h.fechaVigencia <= :fecha " +
+            "ORDER BY h.fechaVigencia DESC, h.idHistorial DESC LIMIT 1) " +
+            "WHERE EXISTS (SELECT h2 FROM HistorialPrecio h2 WHERE h2.instrumento = i AND h2.fechaVigencia <= :fecha) " +
+            "AND (i.precioActual IS NULL OR i.precioActual <> " +
+            "(SELECT h3.precio FROM HistorialPrecio h3 WHERE h3.instrumento = i AND h3.fechaVigencia <= :fecha " +
+            "ORDER BY h3.fechaVigencia DESC, h3.idHistorial DESC LIMIT 1))")
+    int sincronizarPrecioActual(@Param("fecha") Date fecha);
 }
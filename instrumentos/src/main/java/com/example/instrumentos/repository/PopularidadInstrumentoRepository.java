@@ -0,0 +1,9 @@
+package com.example.instrumentos.repository;
+
+import com.example.instrumentos.model.PopularidadInstrumento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PopularidadInstrumentoRepository extends JpaRepository<PopularidadInstrumento, Long> {
+}
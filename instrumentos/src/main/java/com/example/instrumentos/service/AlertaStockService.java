@@ -0,0 +1,92 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.StockBajoEvent;
+import com.example.instrumentos.model.Instrumento;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Umbrales de stock bajo y alertas para administradores. El umbral de un instrumento es
+ * el propio, si no el de su categoría y si no el valor por defecto. La alerta se emite
+ * una sola vez, cuando una operación lleva el stock de "en o sobre el umbral" a "debajo",
+ * y se envía por Server-Sent Events a los administradores conectados.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertaStockService {
+
+    private static final long TIMEOUT_SUSCRIPCION_MS = 30 * 60 * 1000L;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${instrumentos.stock.umbral-bajo:5}")
+    private int umbralPorDefecto;
+
+    private final List<SseEmitter> suscriptores = new CopyOnWriteArrayList<>();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    public int getUmbralPorDefecto() {
+        return umbralPorDefecto;
+    }
+
+    public int umbralDe(Instrumento instrumento) {
+        if (instrumento.getUmbralStockBajo() != null) {
+            return instrumento.getUmbralStockBajo();
+        }
+        if (instrumento.getCategoriaInstrumento() != null
+                && instrumento.getCategoriaInstrumento().getUmbralStockBajo() != null) {
+            return instrumento.getCategoriaInstrumento().getUmbralStockBajo();
+        }
+        return umbralPorDefecto;
+    }
+
+    /**
+     * Publicar la alerta si el stock acaba de cruzar el umbral (se entrega después del commit)
+     */
+    public void verificarCruce(Instrumento instrumento, int stockAnterior) {
+        int umbral = umbralDe(instrumento);
+        if (stockAnterior >= umbral && instrumento.getStock() < umbral) {
+            log.warn("⚠️ Stock bajo: {} quedó con {} unidad(es) (umbral {})",
+                    instrumento.getDenominacion(), instrumento.getStock(), umbral);
+            eventPublisher.publishEvent(new StockBajoEvent(instrumento.getIdInstrumento(),
+                    instrumento.getDenominacion(), instrumento.getStock(), umbral));
+        }
+    }
+
+    public SseEmitter suscribir() {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_SUSCRIPCION_MS);
+        emitter.onCompletion(() -> suscriptores.remove(emitter));
+        emitter.onTimeout(() -> suscriptores.remove(emitter));
+        emitter.onError(e -> suscriptores.remove(emitter));
+        suscriptores.add(emitter);
+        log.info("🔔 Administrador suscripto a alertas de stock ({} conectado(s))", suscriptores.size());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockBajo(StockBajoEvent event) {
+        SseEmitter.SseEventBuilder mensaje = SseEmitter.event()
+                .id(String.valueOf(secuencia.incrementAndGet()))
+                .name("stock-bajo")
+                .data(event);
+        for (SseEmitter emitter : suscriptores) {
+            try {
+                emitter.send(mensaje);
+            } catch (IOException | IllegalStateException e) {
+                // Conexión cerrada por el cliente
+                suscriptores.remove(emitter);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import com.example.instrumentos.util.TextoNormalizador;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria para la búsqueda de texto sobre denominación, marca y
+ * descripción, con ranking BM25. Cada instrumento ocupa un "documento" interno (un entero);
+ * las listas de apariciones guardan documento y frecuencia en arreglos primitivos.
+ * Los campos pesan distinto: una coincidencia en la denominación vale más que en la descripción.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BusquedaIndex {
+
+    private static final int PESO_DENOMINACION = 3;
+    private static final int PESO_MARCA = 2;
+    private static final int PESO_DESCRIPCION = 1;
+
+    // Parámetros clásicos de BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final InstrumentoRepository instrumentoRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Apariciones> indice = new HashMap<>();
+    private final Map<Long, Integer> documentoPorId = new HashMap<>();
+    private long[] idPorDocumento = new long[1024];
+    private int[] largoPorDocumento = new int[1024];
+    private String[][] terminosPorDocumento = new String[1024][];
+    private int[] documentosLibres = new int[16];
+    private int cantidadLibres;
+    private int siguienteDocumento;
+    private long largoTotal;
+
+    /**
+     * Indexar todo el catálogo al iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        long inicio = System.currentTimeMillis();
+        List<Object[]> instrumentos = instrumentoRepository.findTextosBusqueda();
+
+        lock.writeLock().lock();
+        try {
+            for (Object[] fila : instrumentos) {
+                indexarSinBloqueo((Long) fila[0], (String) fila[1], (String) fila[2], (String) fila[3]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("🔎 Índice de búsqueda cargado: {} instrumento(s), {} término(s) en {} ms",
+                instrumentos.size(), indice.size(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Mantener el índice al día con cada alta, modificación o baja (después del commit)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        switch (event.tipo()) {
+            case ELIMINADO -> eliminar(event.idInstrumento());
+            case CREADO, ACTUALIZADO -> instrumentoRepository.findTextosBusquedaById(event.idInstrumento()).stream()
+                    .findFirst()
+                    .ifPresentOrElse(
+                            fila -> indexar((Long) fila[0], (String) fila[1], (String) fila[2], (String) fila[3]),
+                            () -> eliminar(event.idInstrumento()));
+            default -> {
+                // Precio y stock no cambian el texto indexado
+            }
+        }
+    }
+
+    public void indexar(long idInstrumento, String denominacion, String marca, String descripcion) {
+        lock.writeLock().lock();
+        try {
+            indexarSinBloqueo(idInstrumento, denominacion, marca, descripcion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(long idInstrumento) {
+        lock.writeLock().lock();
+        try {
+            eliminarSinBloqueo(idInstrumento);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentoPorId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Buscar los instrumentos más relevantes para el texto dado, de mayor a menor puntaje
+     */
+    public List<Resultado> buscar(String texto, int limite) {
+        Set<String> terminosConsulta = new LinkedHashSet<>(TextoNormalizador.terminos(texto));
+        if (terminosConsulta.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int cantidadDocumentos = documentoPorId.size();
+            if (cantidadDocumentos == 0) {
+                return List.of();
+            }
+            double largoPromedio = (double) largoTotal / cantidadDocumentos;
+
+            double[] puntajes = new double[siguienteDocumento];
+            int[] tocados = new int[Math.min(siguienteDocumento, 256)];
+            int cantidadTocados = 0;
+
+            for (String termino : terminosConsulta) {
+                Apariciones apariciones = indice.get(termino);
+                if (apariciones == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (cantidadDocumentos - apariciones.tamanio + 0.5)
+                        / (apariciones.tamanio + 0.5));
+
+                for (int k = 0; k < apariciones.tamanio; k++) {
+                    int doc = apariciones.documentos[k];
+                    int tf = apariciones.frecuencias[k];
+                    double normalizacion = K1 * (1 - B + B * largoPorDocumento[doc] / largoPromedio);
+                    if (puntajes[doc] == 0) {
+                        if (cantidadTocados == tocados.length) {
+                            tocados = Arrays.copyOf(tocados, tocados.length * 2);
+                        }
+                        tocados[cantidadTocados++] = doc;
+                    }
+                    puntajes[doc] += idf * (tf * (K1 + 1)) / (tf + normalizacion);
+                }
+            }
+
+            // Top-N con un heap de mínimos de tamaño acotado
+            PriorityQueue<Resultado> mejores = new PriorityQueue<>(limite,
+                    (a, b) -> Double.compare(a.puntaje(), b.puntaje()));
+            for (int k = 0; k < cantidadTocados; k++) {
+                int doc = tocados[k];
+                if (mejores.size() < limite) {
+                    mejores.add(new Resultado(idPorDocumento[doc], puntajes[doc]));
+                } else if (puntajes[doc] > mejores.peek().puntaje()) {
+                    mejores.poll();
+                    mejores.add(new Resultado(idPorDocumento[doc], puntajes[doc]));
+                }
+            }
+
+            List<Resultado> resultados = new ArrayList<>(mejores);
+            resultados.sort((a, b) -> Double.compare(b.puntaje(), a.puntaje()));
+            return resultados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexarSinBloqueo(long idInstrumento, String denominacion, String marca, String descripcion) {
+        eliminarSinBloqueo(idInstrumento);
+
+        Map<String, Integer> frecuencias = new HashMap<>();
+        int largo = 0;
+        largo += acumular(frecuencias, denominacion, PESO_DENOMINACION);
+        largo += acumular(frecuencias, marca, PESO_MARCA);
+        largo += acumular(frecuencias, descripcion, PESO_DESCRIPCION);
+
+        int doc = reservarDocumento();
+        idPorDocumento[doc] = idInstrumento;
+        largoPorDocumento[doc] = largo;
+        terminosPorDocumento[doc] = frecuencias.keySet().toArray(new String[0]);
+        documentoPorId.put(idInstrumento, doc);
+        largoTotal += largo;
+
+        for (Map.Entry<String, Integer> entrada : frecuencias.entrySet()) {
+            indice.computeIfAbsent(entrada.getKey(), t -> new Apariciones()).agregar(doc, entrada.getValue());
+        }
+    }
+
+    private void eliminarSinBloqueo(long idInstrumento) {
+        Integer doc = documentoPorId.remove(idInstrumento);
+        if (doc == null) {
+            return;
+        }
+        for (String termino : terminosPorDocumento[doc]) {
+            Apariciones apariciones = indice.get(termino);
+            if (apariciones != null && apariciones.quitar(doc) && apariciones.tamanio == 0) {
+                indice.remove(termino);
+            }
+        }
+        largoTotal -= largoPorDocumento[doc];
+        terminosPorDocumento[doc] = null;
+        largoPorDocumento[doc] = 0;
+
+        if (cantidadLibres == documentosLibres.length) {
+            documentosLibres = Arrays.copyOf(documentosLibres, cantidadLibres * 2);
+        }
+        documentosLibres[cantidadLibres++] = doc;
+    }
+
+    private int reservarDocumento() {
+        if (cantidadLibres > 0) {
+            return documentosLibres[--cantidadLibres];
+        }
+        if (siguienteDocumento == idPorDocumento.length) {
+            int capacidad = idPorDocumento.length * 2;
+            idPorDocumento = Arrays.copyOf(idPorDocumento, capacidad);
+            largoPorDocumento = Arrays.copyOf(largoPorDocumento, capacidad);
+            terminosPorDocumento = Arrays.copyOf(terminosPorDocumento, capacidad);
+        }
+        return siguienteDocumento++;
+    }
+
+    private static int acumular(Map<String, Integer> frecuencias, String texto, int peso) {
+        List<String> terminos = TextoNormalizador.terminos(texto);
+        for (String termino : terminos) {
+            frecuencias.merge(termino, peso, Integer::sum);
+        }
+        return terminos.size() * peso;
+    }
+
+    /**
+     * Lista de apariciones de un término: documentos y frecuencia ponderada en cada uno
+     */
+    private static final class Apariciones {
+        private int[] documentos = new int[4];
+        private int[] frecuencias = new int[4];
+        private int tamanio;
+
+        void agregar(int doc, int frecuencia) {
+            if (tamanio == documentos.length) {
+                documentos = Arrays.copyOf(documentos, tamanio * 2);
+                frecuencias = Arrays.copyOf(frecuencias, tamanio * 2);
+            }
+            documentos[tamanio] = doc;
+            frecuencias[tamanio] = frecuencia;
+            tamanio++;
+        }
+
+        boolean quitar(int doc) {
+            for (int k = 0; k < tamanio; k++) {
+                if (documentos[k] == doc) {
+                    // El orden no importa: se mueve el último al hueco
+                    tamanio--;
+                    documentos[k] = documentos[tamanio];
+                    frecuencias[k] = frecuencias[tamanio];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public record Resultado(long idInstrumento, double puntaje) {
+    }
+}
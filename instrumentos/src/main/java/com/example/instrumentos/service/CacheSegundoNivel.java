@@ -0,0 +1,89 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.dto.response.EstadisticaRegionCacheDTO;
+import com.example.instrumentos.event.CategoriaModificadaEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import com.example.instrumentos.model.CategoriaInstrumento;
+import com.example.instrumentos.model.Instrumento;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mantenimiento y estadísticas de la caché de segundo nivel de Hibernate.
+ * Las escrituras por JPA ya actualizan la caché, pero los lotes JDBC (precios, stock,
+ * precios programados) escriben directo en la tabla: por eso cada instrumento modificado
+ * se desaloja después del commit, igual que se invalida la caché de respuestas.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheSegundoNivel {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        entityManagerFactory.getCache().evict(Instrumento.class, event.idInstrumento());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentosModificados(InstrumentosModificadosEvent event) {
+        Cache cache = entityManagerFactory.getCache();
+        event.idsInstrumento().forEach(id -> cache.evict(Instrumento.class, id));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriaModificada(CategoriaModificadaEvent event) {
+        // El listado cacheado de categorías también se descarta al cambiar la tabla
+        entityManagerFactory.getCache().evict(CategoriaInstrumento.class, event.idCategoria());
+        sessionFactory().getCache().evictDefaultQueryRegion();
+    }
+
+    /**
+     * Aciertos, fallos y escrituras de cada región (entidades y consultas)
+     */
+    public List<EstadisticaRegionCacheDTO> estadisticas() {
+        Statistics estadisticas = sessionFactory().getStatistics();
+        return Arrays.stream(estadisticas.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> toDTO(estadisticas.getCacheRegionStatistics(region)))
+                .toList();
+    }
+
+    public boolean estadisticasHabilitadas() {
+        return sessionFactory().getStatistics().isStatisticsEnabled();
+    }
+
+    public void limpiar() {
+        entityManagerFactory.getCache().evictAll();
+        sessionFactory().getCache().evictQueryRegions();
+        log.info("🧹 Caché de segundo nivel vaciada");
+    }
+
+    private static EstadisticaRegionCacheDTO toDTO(CacheRegionStatistics region) {
+        long lecturas = region.getHitCount() + region.getMissCount();
+        long enMemoria = region.getElementCountInMemory();
+        return new EstadisticaRegionCacheDTO(
+                region.getRegionName(),
+                region.getHitCount(),
+                region.getMissCount(),
+                region.getPutCount(),
+                lecturas > 0 ? (double) region.getHitCount() / lecturas : null,
+                enMemoria != CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN ? enMemoria : null);
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.CategoriaModificadaEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caché de respuestas del catálogo público ya serializadas a JSON y comprimidas con gzip.
+ * Cada variante (todo el catálogo o una categoría) se guarda como bytes, así un acierto
+ * no vuelve a pasar por Jackson. Cada variante guarda la versión de VersionCatalogo con
+ * la que se armó, la misma que usa el ETag: una variante de otra versión no se sirve,
+ * y el cuerpo y su ETag no pueden quedar desfasados. Cualquier escritura de instrumentos
+ * o categorías además descarta las variantes guardadas para liberar memoria.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogoResponseCache {
+
+    public static final String CLAVE_TODOS = "todos";
+
+    private final ObjectMapper objectMapper;
+    private final VersionCatalogo versionCatalogo;
+
+    private final Map<String, RespuestaSerializada> variantes = new ConcurrentHashMap<>();
+
+    public static String claveCategoria(Long idCategoria) {
+        return "categoria:" + idCategoria;
+    }
+
+    /**
+     * Obtener la variante pedida; si no está (o quedó vieja) se arma con el cargador y se serializa.
+     * El resultado solo se guarda si la versión no cambió mientras se construía.
+     */
+    public RespuestaSerializada obtener(String clave, Supplier<?> cargador) {
+        String versionActual = versionCatalogo.version(VersionCatalogo.Recurso.INSTRUMENTOS);
+        RespuestaSerializada guardada = variantes.get(clave);
+        if (guardada != null && guardada.version().equals(versionActual)) {
+            return guardada;
+        }
+
+        RespuestaSerializada nueva = serializar(cargador.get(), versionActual);
+        if (versionCatalogo.version(VersionCatalogo.Recurso.INSTRUMENTOS).equals(versionActual)) {
+            variantes.put(clave, nueva);
+        }
+        return nueva;
+    }
+
+    public void invalidar() {
+        variantes.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        invalidar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentosModificados(InstrumentosModificadosEvent event) {
+        invalidar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriaModificada(CategoriaModificadaEvent event) {
+        invalidar();
+    }
+
+    private RespuestaSerializada serializar(Object valor, String versionActual) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(valor);
+
+            ByteArrayOutputStream comprimido = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido)) {
+                gzip.write(json);
+            }
+
+            log.debug("🗜️ Catálogo serializado ({}): {} bytes, {} bytes con gzip",
+                    versionActual, json.length, comprimido.size());
+            return new RespuestaSerializada(json, comprimido.toByteArray(), versionActual);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al serializar el catálogo", e);
+        }
+    }
+
+    /**
+     * Cuerpo JSON listo para enviar, en versión plana y comprimida
+     */
+    public record RespuestaSerializada(byte[] json, byte[] gzip, String version) {
+    }
+}
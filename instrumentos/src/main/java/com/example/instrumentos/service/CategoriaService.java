@@ -1,13 +1,19 @@
 package com.example.instrumentos.service;
 
+import com.example.instrumentos.dto.response.ResumenCategoriaDTO;
+import com.example.instrumentos.event.CategoriaModificadaEvent;
 import com.example.instrumentos.model.CategoriaInstrumento;
 import com.example.instrumentos.repository.CategoriaInstrumentoRepository;
+import com.example.instrumentos.repository.InstrumentoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -17,7 +23,11 @@ import java.util.Optional;
 public class CategoriaService {
 
     private final CategoriaInstrumentoRepository categoriaRepository;
+    private final InstrumentoRepository instrumentoRepository;
+    private final FacetasIndex facetasIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional(readOnly = true)
     public List<CategoriaInstrumento> findAll() {
         return categoriaRepository.findAll();
     }
@@ -33,20 +43,47 @@ public class CategoriaService {
                 throw new IllegalArgumentException("Ya existe una categoría con esa denominación");
             }
         }
-        return categoriaRepository.save(categoria);
+        CategoriaInstrumento guardada = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(guardada.getIdCategoriaInstrumento()));
+        return guardada;
+    }
+
+    /**
+     * Categorías con la cantidad de instrumentos, los que tienen stock y el rango de precios,
+     * tomados de los totales que mantiene el índice de facetas
+     */
+    @Transactional(readOnly = true)
+    public List<ResumenCategoriaDTO> obtenerResumen() {
+        Map<Long, FacetasIndex.ResumenCategoria> totales = facetasIndex.resumenCategorias();
+        return categoriaRepository.findAll().stream()
+                .sorted(Comparator.comparing(CategoriaInstrumento::getIdCategoriaInstrumento))
+                .map(categoria -> {
+                    FacetasIndex.ResumenCategoria total = totales.get(categoria.getIdCategoriaInstrumento());
+                    if (total == null) {
+                        return new ResumenCategoriaDTO(categoria.getIdCategoriaInstrumento(),
+                                categoria.getDenominacion(), 0, 0, null, null, null);
+                    }
+                    return new ResumenCategoriaDTO(categoria.getIdCategoriaInstrumento(),
+                            categoria.getDenominacion(), total.instrumentos(), total.conStock(),
+                            total.precioMinimo(), total.precioMaximo(),
+                            Math.round(total.precioPromedio() * 100) / 100.0);
+                })
+                .toList();
     }
 
     public void deleteById(Long id) {
         // Verificar que la categoría existe
-        CategoriaInstrumento categoria = categoriaRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Categoría no encontrada"));
+        if (!categoriaRepository.existsById(id)) {
+            throw new IllegalArgumentException("Categoría no encontrada");
+        }
 
-        // Verificar que no tenga instrumentos asociados
-        if (categoria.getInstrumentos() != null && !categoria.getInstrumentos().isEmpty()) {
+        // Verificar que no tenga instrumentos asociados (consulta por índice, sin cargar la colección)
+        if (instrumentoRepository.existsByCategoriaInstrumento_IdCategoriaInstrumento(id)) {
             throw new IllegalArgumentException("No se puede eliminar una categoría con instrumentos asociados");
         }
 
-        categoriaRepository.deleteById(id);
+        categoriaRepository.eliminarPorId(id);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(id));
     }
 
     // Este método ahora se maneja en DataInitializer
@@ -0,0 +1,258 @@
+package com.example.instrumentos.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Exportación del catálogo completo en NDJSON (un objeto JSON por línea) o CSV.
+ * Las filas se leen con un cursor de solo avance y se escriben a la respuesta a medida
+ * que llegan, sin armar listas ni entidades: la memoria usada no depende del tamaño del
+ * catálogo y el primer byte sale apenas la base devuelve la primera fila.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportacionCatalogoService {
+
+    private static final int FILAS_POR_LECTURA = 1000;
+    // Cada cuántas filas se vacía el búfer hacia el cliente
+    private static final int FILAS_POR_ENVIO = 1000;
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+
+    private static final String CONSULTA =
+            "SELECT i.id_instrumento, i.denominacion, i.marca, i.stock, i.descripcion, i.imagen, " +
+            "i.precio_actual, c.id_categoria_instrumento, c.denominacion AS categoria " +
+            "FROM instrumentos i JOIN categorias_instrumento c " +
+            "ON c.id_categoria_instrumento = i.id_categoria_instrumento " +
+            "ORDER BY i.id_instrumento";
+
+    private static final String ENCABEZADO_CSV =
+            "idInstrumento,denominacion,marca,stock,descripcion,imagen,precioActual,idCategoria,categoria";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PrecioActualIndex precioActualIndex;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public enum Formato {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final MediaType tipo;
+        private final String extension;
+
+        Formato(String tipo, String extension) {
+            this.tipo = MediaType.parseMediaType(tipo + ";charset=UTF-8");
+            this.extension = extension;
+        }
+
+        public MediaType getTipo() {
+            return tipo;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Formato desdeParametro(String format) {
+            if (format == null || format.isBlank()) {
+                return NDJSON;
+            }
+            return switch (format.trim().toLowerCase()) {
+                case "ndjson", "jsonl" -> NDJSON;
+                case "csv" -> CSV;
+                default -> throw new IllegalArgumentException("Formato inválido: " + format);
+            };
+        }
+    }
+
+    /**
+     * Escribir el catálogo completo en la salida; devuelve la cantidad de filas exportadas
+     */
+    public long exportar(Formato formato, OutputStream salida) throws IOException {
+        long inicio = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+        EscritorFilas escritor = formato == Formato.CSV ? new EscritorCsv(writer) : new EscritorNdjson(writer);
+
+        long[] filas = { 0 };
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(CONSULTA,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FILAS_POR_LECTURA);
+                return ps;
+            }, rs -> {
+                try {
+                    escritor.escribir(rs, precioDe(rs));
+                    // La primera fila sale enseguida; después, en tandas
+                    if (++filas[0] == 1 || filas[0] % FILAS_POR_ENVIO == 0) {
+                        escritor.enviar();
+                    }
+                } catch (IOException e) {
+                    // Normalmente el cliente cortó la descarga: se aborta la lectura
+                    throw new UncheckedIOException(e);
+                }
+            });
+            escritor.terminar();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("📤 Catálogo exportado en {}: {} instrumento(s) en {} ms",
+                formato, filas[0], System.currentTimeMillis() - inicio);
+        return filas[0];
+    }
+
+    /**
+     * Precio vigente desde el índice (contempla precios programados recién activados);
+     * la columna precio_actual queda como respaldo
+     */
+    private Double precioDe(ResultSet rs) throws SQLException {
+        Double precio = precioActualIndex.obtener(rs.getLong(1));
+        if (precio != null) {
+            return precio;
+        }
+        double columna = rs.getDouble(7);
+        return rs.wasNull() ? null : columna;
+    }
+
+    private interface EscritorFilas {
+        void escribir(ResultSet rs, Double precio) throws SQLException, IOException;
+
+        void enviar() throws IOException;
+
+        void terminar() throws IOException;
+    }
+
+    /**
+     * Un objeto por línea, con la misma forma que InstrumentoResponseDTO (sin campos nulos)
+     */
+    private final class EscritorNdjson implements EscritorFilas {
+        private final JsonGenerator json;
+        private boolean vacio = true;
+
+        EscritorNdjson(Writer writer) throws IOException {
+            json = jsonFactory.createGenerator(writer);
+            json.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void escribir(ResultSet rs, Double precio) throws SQLException, IOException {
+            vacio = false;
+            json.writeStartObject();
+            json.writeNumberField("idInstrumento", rs.getLong(1));
+            campo("denominacion", rs.getString(2));
+            campo("marca", rs.getString(3));
+            json.writeNumberField("stock", rs.getInt(4));
+            campo("descripcion", rs.getString(5));
+            campo("imagen", rs.getString(6));
+            if (precio != null) {
+                json.writeNumberField("precioActual", precio);
+            }
+            json.writeObjectFieldStart("categoriaInstrumento");
+            json.writeNumberField("idCategoriaInstrumento", rs.getLong(8));
+            campo("denominacion", rs.getString(9));
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+
+        private void campo(String nombre, String valor) throws IOException {
+            if (valor != null) {
+                json.writeStringField(nombre, valor);
+            }
+        }
+
+        @Override
+        public void enviar() throws IOException {
+            json.flush();
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            if (!vacio) {
+                json.writeRaw('\n');
+            }
+            json.flush();
+        }
+    }
+
+    /**
+     * CSV con encabezado; los textos con comas, comillas o saltos de línea van entre comillas
+     */
+    private static final class EscritorCsv implements EscritorFilas {
+        private final Writer writer;
+
+        EscritorCsv(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(ENCABEZADO_CSV);
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void escribir(ResultSet rs, Double precio) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            texto(rs.getString(2));
+            writer.write(',');
+            texto(rs.getString(3));
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt(4)));
+            writer.write(',');
+            texto(rs.getString(5));
+            writer.write(',');
+            texto(rs.getString(6));
+            writer.write(',');
+            if (precio != null) {
+                writer.write(BigDecimal.valueOf(precio).toPlainString());
+            }
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong(8)));
+            writer.write(',');
+            texto(rs.getString(9));
+            writer.write("\r\n");
+        }
+
+        private void texto(String valor) throws IOException {
+            if (valor == null) {
+                return;
+            }
+            boolean comillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                    || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+            if (!comillas) {
+                writer.write(valor);
+                return;
+            }
+            writer.write('"');
+            writer.write(valor.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void enviar() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            writer.flush();
+        }
+    }
+}
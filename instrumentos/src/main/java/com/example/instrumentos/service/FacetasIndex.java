@@ -0,0 +1,520 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.CategoriaModificadaEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import com.example.instrumentos.model.Instrumento;
+import com.example.instrumentos.repository.CategoriaInstrumentoRepository;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import com.example.instrumentos.util.TextoNormalizador;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Índice de facetas del catálogo: un BitSet por categoría, por marca, por rango de precio
+ * y uno para "con stock". Filtrar es un AND de bitsets y cada conteo es la cardinalidad
+ * de la intersección con el resto de los filtros, sin GROUP BY por consulta.
+ *
+ * Cada instrumento ocupa una posición fija (slot) asignada en orden de id; una modificación
+ * conserva el slot y las bajas no se reutilizan, así recorrer los bits devuelve los
+ * instrumentos ordenados por id.
+ *
+ * Además lleva por categoría la cantidad de instrumentos, los que tienen stock y sus
+ * precios, actualizados en cada alta, baja o cambio: el resumen de categorías no recorre
+ * el catálogo.
+ */
+@Component
+@Slf4j
+public class FacetasIndex {
+
+    private final InstrumentoRepository instrumentoRepository;
+    private final CategoriaInstrumentoRepository categoriaRepository;
+    private final PrecioActualIndex precioActualIndex;
+    private final double[] limitesPrecio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotPorId = new HashMap<>();
+    private long[] idPorSlot = new long[1024];
+    private long[] categoriaPorSlot = new long[1024];
+    private String[] marcaPorSlot = new String[1024];
+    private double[] precioPorSlot = new double[1024];
+    private int siguienteSlot;
+
+    private final BitSet activos = new BitSet();
+    private final BitSet conStock = new BitSet();
+    private final Map<Long, BitSet> porCategoria = new HashMap<>();
+    private final Map<String, BitSet> porMarca = new HashMap<>();
+    private final BitSet[] porRangoPrecio;
+    private final Map<Long, String> nombresCategoria = new HashMap<>();
+    private final Map<String, String> nombresMarca = new HashMap<>();
+    private final Map<Long, Acumulado> acumuladoPorCategoria = new HashMap<>();
+
+    public FacetasIndex(InstrumentoRepository instrumentoRepository,
+            CategoriaInstrumentoRepository categoriaRepository,
+            PrecioActualIndex precioActualIndex,
+            @Value("${instrumentos.facetas.rangos-precio:500,1000,2500,5000,10000}") double[] limitesPrecio) {
+        this.instrumentoRepository = instrumentoRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.precioActualIndex = precioActualIndex;
+        this.limitesPrecio = limitesPrecio.clone();
+        Arrays.sort(this.limitesPrecio);
+        this.porRangoPrecio = new BitSet[this.limitesPrecio.length + 1];
+        for (int i = 0; i < porRangoPrecio.length; i++) {
+            porRangoPrecio[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Armar todos los bitsets al iniciar (después de que el índice de precios quedó cargado)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        long inicio = System.currentTimeMillis();
+        List<Instrumento> instrumentos = new ArrayList<>(instrumentoRepository.findAll());
+        instrumentos.sort(Comparator.comparing(Instrumento::getIdInstrumento));
+
+        lock.writeLock().lock();
+        try {
+            for (Instrumento instrumento : instrumentos) {
+                indexarSinBloqueo(instrumento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("🧮 Índice de facetas cargado: {} instrumento(s), {} marca(s) en {} ms",
+                instrumentos.size(), porMarca.size(), System.currentTimeMillis() - inicio);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        Long id = event.idInstrumento();
+        switch (event.tipo()) {
+            case ELIMINADO -> conBloqueo(() -> quitarSinBloqueo(id));
+            case PRECIO -> {
+                // El precio nuevo ya está en el índice de precios: no hace falta ir a la base
+                Double precio = precioActualIndex.obtener(id);
+                if (precio != null) {
+                    conBloqueo(() -> actualizarPrecioSinBloqueo(id, precio));
+                }
+            }
+            case STOCK -> {
+                // El evento trae el stock nuevo: solo cambia el bit de "con stock" y el total de la categoría
+                if (event.stock() != null) {
+                    conBloqueo(() -> actualizarStockSinBloqueo(id, event.stock()));
+                } else {
+                    recargar(id);
+                }
+            }
+            default -> recargar(id);
+        }
+    }
+
+    /**
+     * Un lote de precios o de stock se aplica con los datos en memoria, bajo un solo bloqueo
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentosModificados(InstrumentosModificadosEvent event) {
+        if (event.tipo() == TipoCambio.PRECIO) {
+            Map<Long, Double> precios = new HashMap<>();
+            for (Long id : event.idsInstrumento()) {
+                Double precio = precioActualIndex.obtener(id);
+                if (precio != null) {
+                    precios.put(id, precio);
+                }
+            }
+            conBloqueo(() -> precios.forEach(this::actualizarPrecioSinBloqueo));
+        } else {
+            conBloqueo(() -> event.stocks().forEach(this::actualizarStockSinBloqueo));
+        }
+    }
+
+    private void recargar(Long id) {
+        instrumentoRepository.findAllByIdConCategoria(List.of(id)).stream()
+                .findFirst()
+                .ifPresentOrElse(i -> conBloqueo(() -> indexarSinBloqueo(i)),
+                        () -> conBloqueo(() -> quitarSinBloqueo(id)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriaModificada(CategoriaModificadaEvent event) {
+        // Solo puede cambiar el nombre (una categoría con instrumentos no se elimina)
+        categoriaRepository.findById(event.idCategoria()).ifPresentOrElse(
+                c -> conBloqueo(() -> nombresCategoria.put(c.getIdCategoriaInstrumento(), c.getDenominacion())),
+                () -> conBloqueo(() -> nombresCategoria.remove(event.idCategoria())));
+    }
+
+    /**
+     * Filtrar por categorías, marcas, rango de precio y stock, devolviendo los ids pedidos
+     * y los conteos de cada faceta calculados con el resto de los filtros aplicados.
+     */
+    public ResultadoFacetas filtrar(Set<Long> categorias, Set<String> marcas, Double precioMin,
+            Double precioMax, boolean soloConStock, int desde, int limite) {
+        lock.readLock().lock();
+        try {
+            BitSet filtroCategoria = unir(categorias, porCategoria);
+            BitSet filtroMarca = unir(normalizarMarcas(marcas), porMarca);
+            BitSet filtroPrecio = (precioMin != null || precioMax != null)
+                    ? filtrarPorPrecio(precioMin, precioMax)
+                    : null;
+            BitSet filtroStock = soloConStock ? conStock : null;
+
+            BitSet resultado = interseccion(filtroCategoria, filtroMarca, filtroPrecio, filtroStock);
+
+            // Cada faceta se cuenta con todos los filtros salvo el propio
+            BitSet sinCategoria = interseccion(null, filtroMarca, filtroPrecio, filtroStock);
+            Map<Long, Integer> conteoCategorias = new HashMap<>();
+            porCategoria.forEach((idCategoria, bits) -> {
+                int cantidad = contarInterseccion(sinCategoria, bits);
+                if (cantidad > 0) {
+                    conteoCategorias.put(idCategoria, cantidad);
+                }
+            });
+
+            BitSet sinMarca = interseccion(filtroCategoria, null, filtroPrecio, filtroStock);
+            Map<String, Integer> conteoMarcas = new HashMap<>();
+            porMarca.forEach((clave, bits) -> {
+                int cantidad = contarInterseccion(sinMarca, bits);
+                if (cantidad > 0) {
+                    conteoMarcas.put(nombresMarca.get(clave), cantidad);
+                }
+            });
+
+            BitSet sinPrecio = interseccion(filtroCategoria, filtroMarca, null, filtroStock);
+            int[] conteoRangos = new int[porRangoPrecio.length];
+            for (int i = 0; i < porRangoPrecio.length; i++) {
+                conteoRangos[i] = contarInterseccion(sinPrecio, porRangoPrecio[i]);
+            }
+
+            BitSet sinStock = interseccion(filtroCategoria, filtroMarca, filtroPrecio, null);
+            int cantidadConStock = contarInterseccion(sinStock, conStock);
+
+            List<Long> ids = new ArrayList<>(Math.min(limite, 64));
+            int posicion = 0;
+            for (int slot = resultado.nextSetBit(0); slot >= 0 && ids.size() < limite;
+                    slot = resultado.nextSetBit(slot + 1)) {
+                if (posicion++ >= desde) {
+                    ids.add(idPorSlot[slot]);
+                }
+            }
+
+            Map<Long, String> categoriasConNombre = new HashMap<>();
+            conteoCategorias.keySet().forEach(id -> categoriasConNombre.put(id, nombresCategoria.get(id)));
+
+            return new ResultadoFacetas(resultado.cardinality(), ids, conteoCategorias, categoriasConNombre,
+                    conteoMarcas, limitesPrecio.clone(), conteoRangos, cantidadConStock);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidades y precios de cada categoría con instrumentos, por id de categoría
+     */
+    public Map<Long, ResumenCategoria> resumenCategorias() {
+        lock.readLock().lock();
+        try {
+            Map<Long, ResumenCategoria> resumen = new HashMap<>();
+            acumuladoPorCategoria.forEach((idCategoria, acumulado) -> resumen.put(idCategoria, acumulado.resumen()));
+            return resumen;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contiene(long idInstrumento) {
+        lock.readLock().lock();
+        try {
+            return slotPorId.containsKey(idInstrumento);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int slotsAsignados() {
+        lock.readLock().lock();
+        try {
+            return siguienteSlot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexarSinBloqueo(Instrumento instrumento) {
+        long id = instrumento.getIdInstrumento();
+
+        // Un instrumento ya indexado conserva su slot (y su lugar en el orden por id)
+        Integer existente = slotPorId.get(id);
+        int slot;
+        if (existente != null) {
+            slot = existente;
+            vaciarSlot(slot);
+        } else {
+            slot = siguienteSlot++;
+            asegurarCapacidad(slot);
+            slotPorId.put(id, slot);
+            idPorSlot[slot] = id;
+        }
+        activos.set(slot);
+
+        long idCategoria = instrumento.getCategoriaInstrumento().getIdCategoriaInstrumento();
+        categoriaPorSlot[slot] = idCategoria;
+        porCategoria.computeIfAbsent(idCategoria, c -> new BitSet()).set(slot);
+        nombresCategoria.put(idCategoria, instrumento.getCategoriaInstrumento().getDenominacion());
+
+        String marca = claveMarca(instrumento.getMarca());
+        marcaPorSlot[slot] = marca;
+        porMarca.computeIfAbsent(marca, m -> new BitSet()).set(slot);
+        nombresMarca.putIfAbsent(marca, instrumento.getMarca() == null ? "" : instrumento.getMarca().trim());
+
+        boolean tieneStock = instrumento.getStock() != null && instrumento.getStock() > 0;
+        conStock.set(slot, tieneStock);
+
+        Double precio = precioActualIndex.obtener(id);
+        if (precio == null) {
+            precio = instrumento.getPrecioActual() != null ? instrumento.getPrecioActual() : 0.0;
+        }
+        precioPorSlot[slot] = precio;
+        porRangoPrecio[rangoDe(precio)].set(slot);
+
+        acumuladoPorCategoria.computeIfAbsent(idCategoria, c -> new Acumulado()).agregar(tieneStock, precio);
+    }
+
+    private void quitarSinBloqueo(long id) {
+        Integer slot = slotPorId.remove(id);
+        if (slot != null) {
+            vaciarSlot(slot);
+        }
+    }
+
+    /**
+     * Quitar el slot de todos los bitsets y totales (el slot sigue asignado a su id)
+     */
+    private void vaciarSlot(int slot) {
+        Acumulado acumulado = acumuladoPorCategoria.get(categoriaPorSlot[slot]);
+        acumulado.quitar(conStock.get(slot), precioPorSlot[slot]);
+        if (acumulado.instrumentos == 0) {
+            acumuladoPorCategoria.remove(categoriaPorSlot[slot]);
+        }
+
+        activos.clear(slot);
+        conStock.clear(slot);
+        porRangoPrecio[rangoDe(precioPorSlot[slot])].clear(slot);
+
+        BitSet categoria = porCategoria.get(categoriaPorSlot[slot]);
+        categoria.clear(slot);
+        if (categoria.isEmpty()) {
+            porCategoria.remove(categoriaPorSlot[slot]);
+        }
+
+        BitSet marca = porMarca.get(marcaPorSlot[slot]);
+        marca.clear(slot);
+        if (marca.isEmpty()) {
+            porMarca.remove(marcaPorSlot[slot]);
+            nombresMarca.remove(marcaPorSlot[slot]);
+        }
+        marcaPorSlot[slot] = null;
+    }
+
+    private void actualizarStockSinBloqueo(long id, int stock) {
+        Integer slot = slotPorId.get(id);
+        if (slot == null) {
+            return;
+        }
+        boolean tieneStock = stock > 0;
+        if (conStock.get(slot) != tieneStock) {
+            conStock.set(slot, tieneStock);
+            acumuladoPorCategoria.get(categoriaPorSlot[slot]).cambiarStock(tieneStock);
+        }
+    }
+
+    private void actualizarPrecioSinBloqueo(long id, double precio) {
+        Integer slot = slotPorId.get(id);
+        if (slot == null) {
+            return;
+        }
+        porRangoPrecio[rangoDe(precioPorSlot[slot])].clear(slot);
+        acumuladoPorCategoria.get(categoriaPorSlot[slot]).cambiarPrecio(precioPorSlot[slot], precio);
+        precioPorSlot[slot] = precio;
+        porRangoPrecio[rangoDe(precio)].set(slot);
+    }
+
+    /**
+     * Los rangos de precio que caen enteros dentro de [min, max] se suman con un OR de su
+     * bitset; solo se revisan precio por precio los slots de los rangos de los extremos
+     */
+    private BitSet filtrarPorPrecio(Double precioMin, Double precioMax) {
+        double min = precioMin != null ? precioMin : Double.NEGATIVE_INFINITY;
+        double max = precioMax != null ? precioMax : Double.POSITIVE_INFINITY;
+        BitSet bits = new BitSet(siguienteSlot);
+        if (min > max) {
+            return bits;
+        }
+        for (int rango = rangoDe(min); rango <= rangoDe(max); rango++) {
+            BitSet enRango = porRangoPrecio[rango];
+            double inferior = rango > 0 ? limitesPrecio[rango - 1] : Double.NEGATIVE_INFINITY;
+            double superior = rango < limitesPrecio.length ? limitesPrecio[rango] : Double.POSITIVE_INFINITY;
+            // El límite superior es exclusivo: el rango entra entero si termina antes de max
+            if (inferior >= min && superior <= max) {
+                bits.or(enRango);
+                continue;
+            }
+            for (int slot = enRango.nextSetBit(0); slot >= 0; slot = enRango.nextSetBit(slot + 1)) {
+                if (precioPorSlot[slot] >= min && precioPorSlot[slot] <= max) {
+                    bits.set(slot);
+                }
+            }
+        }
+        return bits;
+    }
+
+    private int rangoDe(double precio) {
+        int posicion = Arrays.binarySearch(limitesPrecio, precio);
+        // Un precio igual a un límite pertenece al rango que empieza en ese límite
+        return posicion >= 0 ? posicion + 1 : -posicion - 1;
+    }
+
+    private BitSet interseccion(BitSet... filtros) {
+        BitSet resultado = (BitSet) activos.clone();
+        for (BitSet filtro : filtros) {
+            if (filtro != null) {
+                resultado.and(filtro);
+            }
+        }
+        return resultado;
+    }
+
+    private static int contarInterseccion(BitSet a, BitSet b) {
+        BitSet copia = (BitSet) a.clone();
+        copia.and(b);
+        return copia.cardinality();
+    }
+
+    private static <K> BitSet unir(Set<K> valores, Map<K, BitSet> bitsPorValor) {
+        if (valores == null || valores.isEmpty()) {
+            return null;
+        }
+        BitSet union = new BitSet();
+        for (K valor : valores) {
+            BitSet bits = bitsPorValor.get(valor);
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        return union;
+    }
+
+    private static Set<String> normalizarMarcas(Set<String> marcas) {
+        if (marcas == null) {
+            return null;
+        }
+        return marcas.stream().map(FacetasIndex::claveMarca).collect(Collectors.toSet());
+    }
+
+    private static String claveMarca(String marca) {
+        return TextoNormalizador.normalizar(marca == null ? "" : marca.trim());
+    }
+
+    private void asegurarCapacidad(int slot) {
+        if (slot < idPorSlot.length) {
+            return;
+        }
+        int capacidad = idPorSlot.length * 2;
+        idPorSlot = Arrays.copyOf(idPorSlot, capacidad);
+        categoriaPorSlot = Arrays.copyOf(categoriaPorSlot, capacidad);
+        marcaPorSlot = Arrays.copyOf(marcaPorSlot, capacidad);
+        precioPorSlot = Arrays.copyOf(precioPorSlot, capacidad);
+    }
+
+    private void conBloqueo(Runnable accion) {
+        lock.writeLock().lock();
+        try {
+            accion.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Totales de una categoría; los precios se guardan contados para poder quitar cualquiera
+     * y seguir conociendo el mínimo y el máximo
+     */
+    private static final class Acumulado {
+        private int instrumentos;
+        private int conStock;
+        private double sumaPrecios;
+        private final TreeMap<Double, Integer> precios = new TreeMap<>();
+
+        void agregar(boolean tieneStock, double precio) {
+            instrumentos++;
+            if (tieneStock) {
+                conStock++;
+            }
+            sumaPrecios += precio;
+            precios.merge(precio, 1, Integer::sum);
+        }
+
+        void quitar(boolean tieneStock, double precio) {
+            instrumentos--;
+            if (tieneStock) {
+                conStock--;
+            }
+            sumaPrecios -= precio;
+            precios.computeIfPresent(precio, (p, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+        }
+
+        void cambiarStock(boolean tieneStock) {
+            conStock += tieneStock ? 1 : -1;
+        }
+
+        void cambiarPrecio(double anterior, double nuevo) {
+            sumaPrecios += nuevo - anterior;
+            precios.computeIfPresent(anterior, (p, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+            precios.merge(nuevo, 1, Integer::sum);
+        }
+
+        ResumenCategoria resumen() {
+            return new ResumenCategoria(instrumentos, conStock, precios.firstKey(), precios.lastKey(),
+                    sumaPrecios / instrumentos);
+        }
+    }
+
+    public record ResumenCategoria(
+            int instrumentos,
+            int conStock,
+            double precioMinimo,
+            double precioMaximo,
+            double precioPromedio) {
+    }
+
+    /**
+     * Resultado de un filtrado: total, página de ids y conteos por valor de cada faceta
+     */
+    public record ResultadoFacetas(
+            int total,
+            List<Long> ids,
+            Map<Long, Integer> conteoCategorias,
+            Map<Long, String> nombresCategorias,
+            Map<String, Integer> conteoMarcas,
+            double[] limitesPrecio,
+            int[] conteoRangosPrecio,
+            int cantidadConStock) {
+    }
+}
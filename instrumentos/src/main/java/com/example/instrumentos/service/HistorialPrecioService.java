@@ -0,0 +1,128 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.dto.response.SeriePreciosResponseDTO;
+import com.example.instrumentos.dto.response.SeriePreciosResponseDTO.IntervaloPrecio;
+import com.example.instrumentos.model.HistorialPrecio;
+import com.example.instrumentos.repository.HistorialPrecioRepository;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Serie temporal del historial de precios, reducida a una cantidad fija de intervalos
+ * (apertura, máximo, mínimo, cierre y promedio). Las filas se recorren una sola vez en
+ * orden cronológico, así el tamaño de la respuesta y la memoria usada no dependen de
+ * cuántos cambios de precio tenga el rango.
+ *
+ * El precio que ya regía al comenzar el rango abre el primer intervalo, y cada intervalo
+ * sin cambios repite el cierre del anterior: un rango sin ediciones devuelve el precio
+ * vigente en todos sus intervalos, no una serie vacía.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HistorialPrecioService {
+
+    private final HistorialPrecioRepository historialPrecioRepository;
+    private final InstrumentoRepository instrumentoRepository;
+
+    /**
+     * Armar la serie de [desde, hasta) (hasta excluido) dividida en intervalos de igual duración.
+     * Devuelve vacío si el instrumento no existe.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SeriePreciosResponseDTO> obtenerSerie(Long idInstrumento, Date desde, Date hasta,
+            int intervalos) {
+        if (!hasta.after(desde)) {
+            throw new IllegalArgumentException("La fecha 'to' debe ser posterior a 'from'");
+        }
+        if (!instrumentoRepository.existsById(idInstrumento)) {
+            return Optional.empty();
+        }
+
+        long inicio = desde.getTime();
+        long duracion = hasta.getTime() - inicio;
+        // Precio vigente justo antes del rango (un registro en 'desde' ya cae en el primer intervalo)
+        Double anterior = historialPrecioRepository.findPrecioVigenteAl(idInstrumento, new Date(inicio - 1))
+                .map(HistorialPrecio::getPrecio)
+                .orElse(null);
+        Acumulador[] acumuladores = new Acumulador[intervalos];
+        long registros = 0;
+
+        try (Stream<Object[]> filas = historialPrecioRepository
+                .streamPuntosByInstrumentoIdAndFechaBetween(idInstrumento, desde, hasta)) {
+            for (Object[] fila : (Iterable<Object[]>) filas::iterator) {
+                long instante = ((Date) fila[0]).getTime();
+                double precio = (Double) fila[1];
+                int indice = (int) ((instante - inicio) * intervalos / duracion);
+
+                Acumulador acumulador = acumuladores[indice];
+                if (acumulador == null) {
+                    acumuladores[indice] = new Acumulador(precio);
+                } else {
+                    acumulador.agregar(precio);
+                }
+                registros++;
+            }
+        }
+
+        List<IntervaloPrecio> resultado = new ArrayList<>();
+        for (int i = 0; i < intervalos; i++) {
+            Acumulador a = acumuladores[i];
+            Date inicioIntervalo = new Date(inicio + duracion * i / intervalos);
+            Date finIntervalo = new Date(inicio + duracion * (i + 1) / intervalos);
+            if (a == null) {
+                // Sin cambios: rige todo el intervalo el cierre anterior (si ya había precio)
+                if (anterior != null) {
+                    resultado.add(new IntervaloPrecio(inicioIntervalo, finIntervalo,
+                            anterior, anterior, anterior, anterior, anterior, 0));
+                }
+                continue;
+            }
+            if (anterior != null) {
+                // El precio que venía del intervalo anterior rige desde el inicio hasta el primer cambio
+                resultado.add(new IntervaloPrecio(inicioIntervalo, finIntervalo,
+                        anterior, Math.max(a.maximo, anterior), Math.min(a.minimo, anterior), a.cierre,
+                        (a.suma + anterior) / (a.cantidad + 1), a.cantidad));
+            } else {
+                resultado.add(new IntervaloPrecio(inicioIntervalo, finIntervalo,
+                        a.apertura, a.maximo, a.minimo, a.cierre, a.suma / a.cantidad, a.cantidad));
+            }
+            anterior = a.cierre;
+        }
+
+        log.debug("📈 Serie de precios del instrumento {}: {} registro(s) en {} intervalo(s)",
+                idInstrumento, registros, resultado.size());
+        return Optional.of(new SeriePreciosResponseDTO(idInstrumento, desde, hasta, registros, resultado));
+    }
+
+    private static final class Acumulador {
+        private final double apertura;
+        private double maximo;
+        private double minimo;
+        private double cierre;
+        private double suma;
+        private int cantidad;
+
+        Acumulador(double precio) {
+            apertura = maximo = minimo = cierre = suma = precio;
+            cantidad = 1;
+        }
+
+        void agregar(double precio) {
+            maximo = Math.max(maximo, precio);
+            minimo = Math.min(minimo, precio);
+            cierre = precio;
+            suma += precio;
+            cantidad++;
+        }
+    }
+}
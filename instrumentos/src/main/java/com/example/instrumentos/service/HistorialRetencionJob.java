@@ -0,0 +1,275 @@
+package com.example.instrumentos.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retención del historial de precios. Los registros de los últimos N meses se conservan
+ * completos; los anteriores se compactan a uno por día o por semana: queda el último de
+ * cada período (el que regía al cerrarlo) y se descartan además los que repiten el precio
+ * del anterior conservado, porque no cambian ninguna consulta "precio al día tal".
+ *
+ * El precio que regía en la fecha de corte siempre se conserva (es el del último registro
+ * de su período), así que el precio vigente y cualquier consulta posterior al corte no
+ * cambian, y las consultas siguen usando el índice (id_instrumento, fecha_vigencia)
+ * sobre una tabla más chica.
+ *
+ * Recorre los instrumentos por id en bloques, cada uno en su propia transacción, que
+ * también guarda el punto de retoma en estado_retencion_historial. Si una pasada se
+ * interrumpe (por un error o un reinicio), la siguiente retoma desde el último bloque
+ * confirmado; volver a compactar un instrumento ya compactado no borra nada, así que
+ * repetir es seguro.
+ *
+ * La pasada corre en un hilo propio: el planificador de Spring tiene un solo hilo y no
+ * debe quedar ocupado, porque lo comparten la activación de precios programados y el
+ * volcado de popularidad.
+ */
+@Component
+@Slf4j
+public class HistorialRetencionJob {
+
+    public enum Granularidad {
+        DIA,
+        SEMANA
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PrecioActualIndex precioActualIndex;
+    private final boolean habilitada;
+    private final int mesesDetalle;
+    private final Granularidad granularidad;
+    private final int instrumentosPorBloque;
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    private static final String SQL_PUNTO_RETOMA = "INSERT INTO estado_retencion_historial (id, ultimo_procesado) " +
+            "VALUES (1, ?) ON DUPLICATE KEY UPDATE ultimo_procesado = VALUES(ultimo_procesado)";
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "retencion-historial");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private final AtomicLong totalInstrumentos = new AtomicLong();
+    private final AtomicLong procesadosPasada = new AtomicLong();
+    private final Counter registrosEliminados;
+    private final Counter bloquesProcesados;
+    private final Counter bloquesFallidos;
+
+    public HistorialRetencionJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            PrecioActualIndex precioActualIndex, MeterRegistry meterRegistry,
+            @Value("${instrumentos.historial.retencion.habilitada:false}") boolean habilitada,
+            @Value("${instrumentos.historial.retencion.meses-detalle:12}") int mesesDetalle,
+            @Value("${instrumentos.historial.retencion.granularidad:DIA}") Granularidad granularidad,
+            @Value("${instrumentos.historial.retencion.instrumentos-por-bloque:200}") int instrumentosPorBloque) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.precioActualIndex = precioActualIndex;
+        this.habilitada = habilitada;
+        this.mesesDetalle = Math.max(1, mesesDetalle);
+        this.granularidad = granularidad;
+        this.instrumentosPorBloque = Math.max(1, instrumentosPorBloque);
+
+        registrosEliminados = Counter.builder("instrumentos.historial.retencion.eliminados")
+                .description("Registros del historial de precios eliminados por la compactación")
+                .register(meterRegistry);
+        bloquesProcesados = Counter.builder("instrumentos.historial.retencion.bloques")
+                .description("Bloques de instrumentos compactados")
+                .register(meterRegistry);
+        bloquesFallidos = Counter.builder("instrumentos.historial.retencion.bloques.fallidos")
+                .description("Bloques que fallaron y se reintentan en la próxima pasada")
+                .register(meterRegistry);
+        Gauge.builder("instrumentos.historial.retencion.progreso", this, HistorialRetencionJob::progreso)
+                .description("Fracción de instrumentos recorridos en la pasada actual (0 a 1)")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${instrumentos.historial.retencion.cron:0 30 3 * * *}")
+    public void ejecutar() {
+        if (!habilitada || !enCurso.compareAndSet(false, true)) {
+            return;
+        }
+        ejecutor.execute(() -> {
+            try {
+                compactar();
+            } catch (RuntimeException e) {
+                log.error("❌ Error en la compactación del historial", e);
+            } finally {
+                enCurso.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Fracción de instrumentos recorridos en la pasada actual (1 si no hay ninguna en curso)
+     */
+    public double progreso() {
+        long total = totalInstrumentos.get();
+        if (!enCurso.get() || total == 0) {
+            return 1.0;
+        }
+        return Math.min(1.0, (double) procesadosPasada.get() / total);
+    }
+
+    private void compactar() {
+        long inicio = System.currentTimeMillis();
+        long corte = ZonedDateTime.now(zona).minusMonths(mesesDetalle).toInstant().toEpochMilli();
+        long desde = puntoDeRetoma();
+
+        totalInstrumentos.set(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM instrumentos", Long.class));
+        procesadosPasada.set(desde == 0 ? 0 : jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM instrumentos WHERE id_instrumento <= ?", Long.class, desde));
+        if (desde > 0) {
+            log.info("🗜️ Retomando la compactación del historial desde el instrumento {}", desde);
+        }
+
+        long eliminados = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id_instrumento FROM instrumentos WHERE id_instrumento > ? " +
+                            "ORDER BY id_instrumento LIMIT ?",
+                    Long.class, desde, instrumentosPorBloque);
+            if (ids.isEmpty()) {
+                break;
+            }
+            try {
+                long ultimo = ids.get(ids.size() - 1);
+                Integer borrados = transactionTemplate.execute(status -> {
+                    int cantidad = compactarBloque(ids, corte);
+                    jdbcTemplate.update(SQL_PUNTO_RETOMA, ultimo);
+                    return cantidad;
+                });
+                eliminados += borrados != null ? borrados : 0;
+                bloquesProcesados.increment();
+            } catch (RuntimeException e) {
+                // El punto de retoma queda en el último bloque confirmado
+                bloquesFallidos.increment();
+                log.error("❌ Falló la compactación del historial a partir del instrumento {}", ids.get(0), e);
+                return;
+            }
+            desde = ids.get(ids.size() - 1);
+            procesadosPasada.addAndGet(ids.size());
+        }
+
+        jdbcTemplate.update(SQL_PUNTO_RETOMA, 0L);
+        log.info("🗜️ Historial de precios compactado ({} meses de detalle, por {}): {} registro(s) eliminados en {} ms",
+                mesesDetalle, granularidad, eliminados, System.currentTimeMillis() - inicio);
+    }
+
+    private long puntoDeRetoma() {
+        List<Long> guardado = jdbcTemplate.queryForList(
+                "SELECT ultimo_procesado FROM estado_retencion_historial WHERE id = 1", Long.class);
+        return guardado.isEmpty() ? 0 : guardado.get(0);
+    }
+
+    private int compactarBloque(List<Long> ids, long corte) {
+        String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object> parametros = new ArrayList<>(ids);
+        parametros.add(new Timestamp(corte));
+
+        // Solo la parte anterior al corte, por el índice (id_instrumento, fecha_vigencia)
+        List<Registro> registros = jdbcTemplate.query(
+                "SELECT id_historial, id_instrumento, fecha_vigencia, precio FROM historial_precio_instrumento " +
+                        "WHERE id_instrumento IN (" + marcadores + ") AND fecha_vigencia < ? " +
+                        "ORDER BY id_instrumento, fecha_vigencia, id_historial",
+                (rs, fila) -> new Registro(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).getTime(), rs.getDouble(4)),
+                parametros.toArray());
+
+        List<Object[]> aEliminar = new ArrayList<>();
+        int inicio = 0;
+        while (inicio < registros.size()) {
+            int fin = inicio;
+            long idInstrumento = registros.get(inicio).idInstrumento();
+            while (fin < registros.size() && registros.get(fin).idInstrumento() == idInstrumento) {
+                fin++;
+            }
+            List<Registro> delInstrumento = registros.subList(inicio, fin);
+            List<Registro> conservados = conservados(delInstrumento, granularidad, zona);
+            if (conservados.size() < delInstrumento.size()) {
+                int siguiente = 0;
+                for (Registro registro : delInstrumento) {
+                    if (siguiente < conservados.size() && conservados.get(siguiente) == registro) {
+                        siguiente++;
+                    } else {
+                        aEliminar.add(new Object[] { registro.idHistorial() });
+                    }
+                }
+                long[] instantes = new long[conservados.size()];
+                double[] precios = new double[conservados.size()];
+                for (int i = 0; i < conservados.size(); i++) {
+                    instantes[i] = conservados.get(i).fechaVigencia();
+                    precios[i] = conservados.get(i).precio();
+                }
+                precioActualIndex.compactar(idInstrumento, corte, instantes, precios);
+            }
+            inicio = fin;
+        }
+
+        if (!aEliminar.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM historial_precio_instrumento WHERE id_historial = ?", aEliminar);
+            registrosEliminados.increment(aEliminar.size());
+        }
+        return aEliminar.size();
+    }
+
+    /**
+     * Registros que se conservan de un instrumento, en orden cronológico: el último de cada
+     * período, salvo que repita el precio del conservado anterior
+     */
+    static List<Registro> conservados(List<Registro> registros, Granularidad granularidad, ZoneId zona) {
+        List<Registro> conservados = new ArrayList<>();
+        for (int i = 0; i < registros.size(); i++) {
+            Registro registro = registros.get(i);
+            boolean ultimoDelPeriodo = i == registros.size() - 1
+                    || !periodo(registro.fechaVigencia(), granularidad, zona)
+                            .equals(periodo(registros.get(i + 1).fechaVigencia(), granularidad, zona));
+            if (!ultimoDelPeriodo) {
+                continue;
+            }
+            if (!conservados.isEmpty() && conservados.get(conservados.size() - 1).precio() == registro.precio()) {
+                continue;
+            }
+            conservados.add(registro);
+        }
+        return conservados;
+    }
+
+    private static LocalDate periodo(long instante, Granularidad granularidad, ZoneId zona) {
+        LocalDate dia = Instant.ofEpochMilli(instante).atZone(zona).toLocalDate();
+        return granularidad == Granularidad.SEMANA
+                ? dia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                : dia;
+    }
+
+    record Registro(long idHistorial, long idInstrumento, long fechaVigencia, double precio) {
+    }
+}
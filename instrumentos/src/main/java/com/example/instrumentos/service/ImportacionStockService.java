@@ -0,0 +1,248 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.dto.response.ResultadoImportacionStockDTO;
+import com.example.instrumentos.dto.response.ResultadoImportacionStockDTO.ErrorLinea;
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import com.example.instrumentos.model.Instrumento;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Importación de stock desde CSV (idInstrumento,operacion,cantidad). El archivo se lee
+ * línea a línea y se procesa en bloques: cada bloque bloquea y lee sus instrumentos con
+ * una consulta, aplica las reglas de la entidad (descontarStock / reponerStock) y escribe
+ * los stocks resultantes con un UPDATE por lotes, en su propia transacción. La memoria
+ * usada depende del tamaño del bloque, no del archivo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportacionStockService {
+
+    private static final int LINEAS_POR_BLOQUE = 1000;
+    private static final int MAX_ERRORES_REPORTADOS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AlertaStockService alertaStockService;
+
+    public enum Operacion {
+        FIJAR,
+        REPONER,
+        DESCONTAR
+    }
+
+    public ResultadoImportacionStockDTO importar(InputStream csv) throws IOException {
+        long inicio = System.currentTimeMillis();
+        Reporte reporte = new Reporte();
+        List<Linea> bloque = new ArrayList<>(LINEAS_POR_BLOQUE);
+
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String texto;
+            int numero = 0;
+            while ((texto = lector.readLine()) != null) {
+                numero++;
+                if (texto.isBlank() || (numero == 1 && esEncabezado(texto))) {
+                    continue;
+                }
+                reporte.procesadas++;
+                try {
+                    bloque.add(parsear(numero, texto));
+                } catch (IllegalArgumentException e) {
+                    reporte.pendientes.add(new ErrorLinea(numero, e.getMessage()));
+                }
+                if (bloque.size() == LINEAS_POR_BLOQUE) {
+                    aplicarBloque(bloque, reporte);
+                    bloque.clear();
+                }
+            }
+        }
+        if (!bloque.isEmpty()) {
+            aplicarBloque(bloque, reporte);
+        }
+        // Errores de formato de las últimas líneas, después del último bloque
+        reporte.cerrarBloque();
+
+        long duracion = System.currentTimeMillis() - inicio;
+        log.info("📦 Importación de stock: {} línea(s), {} aplicada(s), {} con error, {} instrumento(s) en {} ms",
+                reporte.procesadas, reporte.aplicadas, reporte.conError, reporte.instrumentos, duracion);
+
+        return new ResultadoImportacionStockDTO(reporte.procesadas, reporte.aplicadas, reporte.conError,
+                reporte.instrumentos, reporte.errores, reporte.conError > reporte.errores.size(), duracion);
+    }
+
+    private void aplicarBloque(List<Linea> bloque, Reporte reporte) {
+        int pendientesPrevios = reporte.pendientes.size();
+        try {
+            transactionTemplate.executeWithoutResult(estado -> aplicarEnTransaccion(bloque, reporte));
+        } catch (DataAccessException e) {
+            log.error("❌ Error al aplicar un bloque de la importación de stock", e);
+            // Si falló el commit, los errores de stock del bloque se reemplazan por el del bloque
+            reporte.pendientes.subList(pendientesPrevios, reporte.pendientes.size()).clear();
+            for (Linea linea : bloque) {
+                reporte.pendientes.add(new ErrorLinea(linea.numero(),
+                        "Error al guardar el bloque: " + e.getMostSpecificCause().getMessage()));
+            }
+        }
+        reporte.cerrarBloque();
+    }
+
+    private void aplicarEnTransaccion(List<Linea> bloque, Reporte reporte) {
+        // Una consulta por bloque; FOR UPDATE evita pisar ventas concurrentes
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(bloque.stream().map(Linea::idInstrumento).toList()));
+        String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Instrumento> instrumentos = new HashMap<>();
+        Map<Long, Integer> stockInicial = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT i.id_instrumento, i.denominacion, i.stock, " +
+                        "COALESCE(i.umbral_stock_bajo, c.umbral_stock_bajo) " +
+                        "FROM instrumentos i JOIN categorias_instrumento c " +
+                        "ON c.id_categoria_instrumento = i.id_categoria_instrumento " +
+                        "WHERE i.id_instrumento IN (" + marcadores + ") FOR UPDATE",
+                rs -> {
+                    // Instancia sin administrar: solo para reutilizar las reglas de stock de la entidad
+                    Instrumento instrumento = new Instrumento();
+                    instrumento.setIdInstrumento(rs.getLong(1));
+                    instrumento.setDenominacion(rs.getString(2));
+                    instrumento.setStock(rs.getInt(3));
+                    // Umbral efectivo (propio o de la categoría) para las alertas de stock bajo
+                    instrumento.setUmbralStockBajo(rs.getObject(4, Integer.class));
+                    instrumentos.put(instrumento.getIdInstrumento(), instrumento);
+                    stockInicial.put(instrumento.getIdInstrumento(), instrumento.getStock());
+                },
+                ids.toArray());
+
+        Map<Long, Instrumento> modificados = new HashMap<>();
+        int aplicadas = 0;
+        List<ErrorLinea> errores = new ArrayList<>();
+        for (Linea linea : bloque) {
+            Instrumento instrumento = instrumentos.get(linea.idInstrumento());
+            if (instrumento == null) {
+                errores.add(new ErrorLinea(linea.numero(), "Instrumento no encontrado con ID: " + linea.idInstrumento()));
+                continue;
+            }
+            try {
+                switch (linea.operacion()) {
+                    case FIJAR -> instrumento.setStock(linea.cantidad());
+                    case REPONER -> instrumento.reponerStock(linea.cantidad());
+                    case DESCONTAR -> instrumento.descontarStock(linea.cantidad());
+                }
+                modificados.put(instrumento.getIdInstrumento(), instrumento);
+                aplicadas++;
+            } catch (IllegalStateException e) {
+                errores.add(new ErrorLinea(linea.numero(), e.getMessage()));
+            }
+        }
+
+        List<Instrumento> aGuardar = new ArrayList<>(modificados.values());
+        jdbcTemplate.batchUpdate("UPDATE instrumentos SET stock = ? WHERE id_instrumento = ?",
+                aGuardar, aGuardar.size(), (ps, instrumento) -> {
+                    ps.setInt(1, instrumento.getStock());
+                    ps.setLong(2, instrumento.getIdInstrumento());
+                });
+        // Un solo evento por bloque: los índices y cachés lo aplican de una vez después del commit
+        Map<Long, Integer> stockPorId = new HashMap<>();
+        for (Instrumento instrumento : aGuardar) {
+            stockPorId.put(instrumento.getIdInstrumento(), instrumento.getStock());
+            alertaStockService.verificarCruce(instrumento, stockInicial.get(instrumento.getIdInstrumento()));
+        }
+        if (!stockPorId.isEmpty()) {
+            eventPublisher.publishEvent(InstrumentosModificadosEvent.stocks(stockPorId));
+        }
+
+        // El reporte se actualiza solo si la transacción llega hasta acá
+        reporte.aplicadas += aplicadas;
+        reporte.instrumentos += aGuardar.size();
+        reporte.pendientes.addAll(errores);
+    }
+
+    private static boolean esEncabezado(String texto) {
+        String primero = separar(texto)[0].trim();
+        return !primero.isEmpty() && !Character.isDigit(primero.charAt(0));
+    }
+
+    private static Linea parsear(int numero, String texto) {
+        String[] campos = separar(texto);
+        if (campos.length < 2 || campos.length > 3) {
+            throw new IllegalArgumentException("Se esperaban las columnas idInstrumento,operacion,cantidad");
+        }
+        // Con dos columnas la operación es FIJAR
+        Operacion operacion = campos.length == 3 ? parsearOperacion(campos[1]) : Operacion.FIJAR;
+        long id = parsearNumero(campos[0]);
+        long cantidad = parsearNumero(campos[campos.length - 1]);
+        if (cantidad < 0 || cantidad > Integer.MAX_VALUE || (cantidad == 0 && operacion != Operacion.FIJAR)) {
+            throw new IllegalArgumentException("Cantidad inválida: " + cantidad);
+        }
+        return new Linea(numero, id, operacion, (int) cantidad);
+    }
+
+    private static Operacion parsearOperacion(String campo) {
+        try {
+            return Operacion.valueOf(campo.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Operación inválida (FIJAR, REPONER o DESCONTAR): " + campo.trim());
+        }
+    }
+
+    private static long parsearNumero(String campo) {
+        try {
+            return Long.parseLong(campo.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inválido: " + campo.trim());
+        }
+    }
+
+    private static String[] separar(String texto) {
+        // Excel en castellano exporta con punto y coma
+        return texto.replace("\"", "").split(texto.indexOf(';') >= 0 ? ";" : ",", -1);
+    }
+
+    private record Linea(int numero, long idInstrumento, Operacion operacion, int cantidad) {
+    }
+
+    private static final class Reporte {
+        private int procesadas;
+        private int aplicadas;
+        private int conError;
+        private int instrumentos;
+        private final List<ErrorLinea> errores = new ArrayList<>();
+        // Errores del bloque en curso: los de formato llegan al leer y los de stock al aplicarlo
+        private final List<ErrorLinea> pendientes = new ArrayList<>();
+
+        /**
+         * Pasa los errores del bloque al reporte ordenados por línea; como los bloques se
+         * aplican en orden, el tope guarda los primeros errores del archivo
+         */
+        void cerrarBloque() {
+            pendientes.sort(Comparator.comparingInt(ErrorLinea::getLinea));
+            conError += pendientes.size();
+            for (ErrorLinea error : pendientes) {
+                if (errores.size() >= MAX_ERRORES_REPORTADOS) {
+                    break;
+                }
+                errores.add(error);
+            }
+            pendientes.clear();
+        }
+    }
+}
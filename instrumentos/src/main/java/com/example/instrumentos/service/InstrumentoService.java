@@ -1,6 +1,12 @@
 package com.example.instrumentos.service;
 
+import com.example.instrumentos.dto.request.ConsultaLoteDTO;
+import com.example.instrumentos.dto.request.HistorialPrecioRequestDTO;
 import com.example.instrumentos.dto.request.InstrumentoRequestDTO;
+import com.example.instrumentos.dto.response.DisponibilidadInstrumentoDTO;
+import com.example.instrumentos.dto.response.InstrumentoResponseDTO;
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
 import com.example.instrumentos.mapper.InstrumentoMapper;
 import com.example.instrumentos.model.CategoriaInstrumento;
 import com.example.instrumentos.model.HistorialPrecio;
@@ -8,13 +14,23 @@ import com.example.instrumentos.model.Instrumento;
 import com.example.instrumentos.repository.CategoriaInstrumentoRepository;
 import com.example.instrumentos.repository.HistorialPrecioRepository;
 import com.example.instrumentos.repository.InstrumentoRepository;
+import com.example.instrumentos.util.CursorCatalogo;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,6 +42,11 @@ public class InstrumentoService {
     private final CategoriaInstrumentoRepository categoriaRepository;
     private final HistorialPrecioRepository historialPrecioRepository;
     private final InstrumentoMapper instrumentoMapper;
+    private final PrecioActualIndex precioActualIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BusquedaIndex busquedaIndex;
+    private final AlertaStockService alertaStockService;
+    private final PreciosProgramadosJob preciosProgramadosJob;
 
     public List<Instrumento> findAll() {
         return instrumentoRepository.findAll();
@@ -35,12 +56,114 @@ public class InstrumentoService {
         return instrumentoRepository.findByCategoriaInstrumento_IdCategoriaInstrumento(idCategoria);
     }
 
+    /**
+     * Listado del catálogo como DTOs proyectados en una sola consulta (sin cargar entidades)
+     */
+    @Transactional(readOnly = true)
+    public List<InstrumentoResponseDTO> findAllDTO() {
+        return instrumentoRepository.findAllDTO();
+    }
+
+    @Transactional(readOnly = true)
+    public List<InstrumentoResponseDTO> findDTOByCategoria(Long idCategoria) {
+        return instrumentoRepository.findDTOByCategoria(idCategoria);
+    }
+
+    /**
+     * Obtener una página del catálogo por clave (keyset), sin cargar el historial de precios.
+     * El costo no depende de la posición de la página: cada consulta arranca después del cursor.
+     */
+    @Transactional(readOnly = true)
+    public List<Instrumento> findPagina(CursorCatalogo.Orden orden, CursorCatalogo cursor, int filas,
+            Long idCategoria) {
+        Pageable pagina = PageRequest.of(0, filas);
+
+        return switch (orden) {
+            case NOMBRE -> cursor == null
+                    ? instrumentoRepository.findPaginaPorNombre(idCategoria, pagina)
+                    : instrumentoRepository.findPaginaPorNombreDespuesDe(idCategoria, cursor.valor(),
+                            cursor.idInstrumento(), pagina);
+            case PRECIO -> cursor == null
+                    ? instrumentoRepository.findPaginaPorPrecio(idCategoria, pagina)
+                    : instrumentoRepository.findPaginaPorPrecioDespuesDe(idCategoria, cursor.valorDecimal(),
+                            cursor.idInstrumento(), pagina);
+            case STOCK -> cursor == null
+                    ? instrumentoRepository.findPaginaPorStock(idCategoria, pagina)
+                    : instrumentoRepository.findPaginaPorStockDespuesDe(idCategoria, cursor.valorEntero(),
+                            cursor.idInstrumento(), pagina);
+        };
+    }
+
+    /**
+     * Búsqueda de texto sobre denominación, marca y descripción, ordenada por relevancia
+     */
+    @Transactional(readOnly = true)
+    public List<Instrumento> buscar(String texto, int limite) {
+        List<Long> ids = busquedaIndex.buscar(texto, limite).stream()
+                .map(BusquedaIndex.Resultado::idInstrumento)
+                .toList();
+        return findAllByIdEnOrden(ids);
+    }
+
+    /**
+     * Cargar varios instrumentos con una sola consulta, respetando el orden de los ids recibidos
+     */
+    @Transactional(readOnly = true)
+    public List<Instrumento> findAllByIdEnOrden(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Instrumento> porId = instrumentoRepository.findAllByIdConCategoria(ids).stream()
+                .collect(Collectors.toMap(Instrumento::getIdInstrumento, Function.identity()));
+        return ids.stream()
+                .map(porId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Precio vigente, stock y disponibilidad de varios instrumentos con una sola consulta,
+     * en el orden recibido. Los ids inexistentes vuelven marcados como no encontrados.
+     */
+    @Transactional(readOnly = true)
+    public List<DisponibilidadInstrumentoDTO> consultarDisponibilidad(List<ConsultaLoteDTO.ItemConsulta> items) {
+        Set<Long> ids = items.stream()
+                .map(ConsultaLoteDTO.ItemConsulta::getInstrumentoId)
+                .collect(Collectors.toSet());
+        Map<Long, DisponibilidadInstrumentoDTO> porId = instrumentoRepository.findDisponibilidadByIds(ids).stream()
+                .collect(Collectors.toMap(DisponibilidadInstrumentoDTO::getIdInstrumento, Function.identity()));
+
+        return items.stream()
+                .map(item -> {
+                    int cantidad = item.getCantidad() != null ? item.getCantidad() : 1;
+                    DisponibilidadInstrumentoDTO encontrado = porId.get(item.getInstrumentoId());
+                    if (encontrado == null) {
+                        return DisponibilidadInstrumentoDTO.noEncontrado(item.getInstrumentoId(), cantidad);
+                    }
+                    // Copia por ítem: el mismo instrumento puede venir repetido con otra cantidad
+                    Double indexado = precioActualIndex.obtener(encontrado.getIdInstrumento());
+                    return new DisponibilidadInstrumentoDTO(
+                            encontrado.getIdInstrumento(),
+                            true,
+                            encontrado.getDenominacion(),
+                            encontrado.getImagen(),
+                            indexado != null ? indexado : encontrado.getPrecioActual(),
+                            encontrado.getStock(),
+                            cantidad,
+                            encontrado.getStock() != null && encontrado.getStock() >= cantidad);
+                })
+                .toList();
+    }
+
     public Optional<Instrumento> findById(Long id) {
         return instrumentoRepository.findByIdWithHistorialPrecios(id);
     }
 
     public Instrumento save(Instrumento instrumento) {
-        return instrumentoRepository.save(instrumento);
+        TipoCambio tipo = instrumento.getIdInstrumento() == null ? TipoCambio.CREADO : TipoCambio.ACTUALIZADO;
+        Instrumento guardado = instrumentoRepository.save(instrumento);
+        publicarCambio(guardado.getIdInstrumento(), tipo);
+        return guardado;
     }
 
     public Instrumento save(InstrumentoRequestDTO instrumentoRequestDTO) {
@@ -54,6 +177,7 @@ public class InstrumentoService {
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Categoría no encontrada con ID: " + instrumentoRequestDTO.getCategoriaId()));
         instrumento.setCategoriaInstrumento(categoria);
+        instrumento.setPrecioActual(instrumentoRequestDTO.getPrecioActual());
 
         // Guardar el instrumento para obtener su ID
         Instrumento savedInstrumento = instrumentoRepository.save(instrumento);
@@ -63,6 +187,8 @@ public class InstrumentoService {
         HistorialPrecio historial = new HistorialPrecio(savedInstrumento,
                 instrumentoRequestDTO.getPrecioActual());
         historialPrecioRepository.save(historial);
+        precioActualIndex.actualizar(savedInstrumento.getIdInstrumento(), historial.getPrecio());
+        publicarCambio(savedInstrumento.getIdInstrumento(), TipoCambio.CREADO);
 
         return savedInstrumento;
     }
@@ -78,11 +204,13 @@ public class InstrumentoService {
         Double precioActualAnterior = obtenerPrecioActual(instrumento);
 
         // 3. Actualizar los campos desde el DTO
+        int stockAnterior = instrumento.getStock();
         instrumento.setDenominacion(dto.getDenominacion());
         instrumento.setMarca(dto.getMarca());
         instrumento.setStock(dto.getStock());
         instrumento.setDescripcion(dto.getDescripcion());
         instrumento.setImagen(dto.getImagen());
+        instrumento.setUmbralStockBajo(dto.getUmbralStockBajo());
 
         // 4. Actualizar la categoría
         CategoriaInstrumento categoria = categoriaRepository.findById(dto.getCategoriaId())
@@ -92,6 +220,8 @@ public class InstrumentoService {
 
         // 5. Guardar la entidad actualizada
         instrumentoRepository.save(instrumento);
+        publicarCambio(id, TipoCambio.ACTUALIZADO);
+        alertaStockService.verificarCruce(instrumento, stockAnterior);
 
         // 6. Manejar la actualización del precio (si cambió)
         if (dto.getPrecioActual() != null &&
@@ -115,6 +245,8 @@ public class InstrumentoService {
         }
 
         instrumentoRepository.deleteById(id);
+        precioActualIndex.eliminar(id);
+        publicarCambio(id, TipoCambio.ELIMINADO);
         log.info("Instrumento {} eliminado", id);
     }
 
@@ -130,11 +262,21 @@ public class InstrumentoService {
     }
 
     /**
-     * Obtener el precio actual de un instrumento (sobrecarga)
+     * Obtener el precio actual de un instrumento (sobrecarga).
+     * Se resuelve desde el índice en memoria o la columna precio_actual, y solo consulta
+     * el historial si el instrumento todavía no tiene ninguno de los dos.
      */
     public Double obtenerPrecioActual(Instrumento instrumento) {
+        Double precioIndexado = precioActualIndex.obtener(instrumento.getIdInstrumento());
+        if (precioIndexado != null) {
+            return precioIndexado;
+        }
+        if (instrumento.getPrecioActual() != null) {
+            return instrumento.getPrecioActual();
+        }
+
         HistorialPrecio historialActual = historialPrecioRepository
-                .findFirstByInstrumentoOrderByFechaVigenciaDesc(instrumento)
+                .findPrecioVigenteByInstrumentoId(instrumento.getIdInstrumento())
                 .orElse(null);
 
         if (historialActual != null) {
@@ -162,7 +304,7 @@ public class InstrumentoService {
             if (Math.abs(precioActual - nuevoPrecio) < 0.01) {
                 log.info("⚠️ El precio no cambió, no se crea historial");
                 return historialPrecioRepository
-                        .findFirstByInstrumentoOrderByFechaVigenciaDesc(instrumento)
+                        .findPrecioVigenteByInstrumentoId(idInstrumento)
                         .orElse(null);
             }
             log.info("Precio anterior: ${} → Nuevo precio: ${}", precioActual, nuevoPrecio);
@@ -170,14 +312,55 @@ public class InstrumentoService {
             log.info("📝 Primer precio del instrumento");
         }
 
-        // Crear nuevo registro en el historial de precios
+        // Crear nuevo registro en el historial de precios y actualizar el precio desnormalizado
         HistorialPrecio nuevoHistorial = new HistorialPrecio(instrumento, nuevoPrecio);
         nuevoHistorial = historialPrecioRepository.save(nuevoHistorial);
+        instrumento.setPrecioActual(nuevoPrecio);
+        precioActualIndex.registrar(idInstrumento, nuevoHistorial.getFechaVigencia().getTime(), nuevoPrecio);
+        publicarCambio(idInstrumento, TipoCambio.PRECIO);
 
         log.info("✅ Precio actualizado. Historial ID: {}", nuevoHistorial.getIdHistorial());
         return nuevoHistorial;
     }
 
+    /**
+     * Programar un precio que empieza a regir en una fecha futura. Queda en el historial
+     * y el índice lo activa al llegar la fecha; sin fecha (o con una pasada) rige desde ahora.
+     */
+    public HistorialPrecio programarPrecio(HistorialPrecioRequestDTO dto) {
+        Date fechaVigencia = dto.getFechaVigencia();
+        if (fechaVigencia == null || !fechaVigencia.after(new Date())) {
+            return actualizarPrecio(dto.getInstrumentoId(), dto.getPrecio());
+        }
+
+        Instrumento instrumento = instrumentoRepository.findById(dto.getInstrumentoId())
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Instrumento no encontrado con ID: " + dto.getInstrumentoId()));
+
+        HistorialPrecio programado = new HistorialPrecio(instrumento, dto.getPrecio());
+        programado.setFechaVigencia(fechaVigencia);
+        programado = historialPrecioRepository.save(programado);
+        precioActualIndex.registrar(instrumento.getIdInstrumento(), fechaVigencia.getTime(), dto.getPrecio());
+        preciosProgramadosJob.agendar(fechaVigencia.getTime());
+
+        log.info("🗓️ Precio ${} programado para el instrumento {} desde {}",
+                dto.getPrecio(), instrumento.getIdInstrumento(), fechaVigencia);
+        return programado;
+    }
+
+    /**
+     * Obtener el precio que regía (o regirá, si estaba programado) en un instante dado
+     */
+    public Double obtenerPrecioAl(Long instrumentoId, Date fecha) {
+        Double precio = precioActualIndex.obtenerEn(instrumentoId, fecha.getTime());
+        if (precio != null) {
+            return precio;
+        }
+        return historialPrecioRepository.findPrecioVigenteAl(instrumentoId, fecha)
+                .map(HistorialPrecio::getPrecio)
+                .orElse(null);
+    }
+
     /**
      * Actualizar stock (descontar) después de una venta
      */
@@ -189,8 +372,12 @@ public class InstrumentoService {
                         "Instrumento no encontrado con ID: " + idInstrumento));
 
         // Usar el método helper de la entidad
+        int stockAnterior = instrumento.getStock();
         instrumento.descontarStock(cantidadVendida);
         instrumentoRepository.save(instrumento);
+        eventPublisher.publishEvent(
+                new InstrumentoModificadoEvent(idInstrumento, TipoCambio.STOCK, instrumento.getStock()));
+        alertaStockService.verificarCruce(instrumento, stockAnterior);
 
         log.info("✅ Stock actualizado: {} unidades restantes", instrumento.getStock());
     }
@@ -208,6 +395,8 @@ public class InstrumentoService {
         // Usar el método helper de la entidad
         instrumento.reponerStock(cantidadReponer);
         instrumentoRepository.save(instrumento);
+        eventPublisher.publishEvent(
+                new InstrumentoModificadoEvent(idInstrumento, TipoCambio.STOCK, instrumento.getStock()));
 
         log.info("✅ Stock repuesto: {} unidades disponibles", instrumento.getStock());
     }
@@ -226,9 +415,19 @@ public class InstrumentoService {
     /**
      * Obtener instrumentos con bajo stock (menos de 5 unidades)
      */
-    public List<Instrumento> findInstrumentosConBajoStock() {
-        return instrumentoRepository.findAll().stream()
-                .filter(i -> i.getStock() < 5)
-                .toList();
+    @Transactional(readOnly = true)
+    public List<InstrumentoResponseDTO> findInstrumentosConBajoStock() {
+        int umbralDefecto = alertaStockService.getUmbralPorDefecto();
+        int umbralMaximo = Math.max(umbralDefecto, Math.max(
+                Objects.requireNonNullElse(instrumentoRepository.findMaxUmbralStockBajo(), 0),
+                Objects.requireNonNullElse(categoriaRepository.findMaxUmbralStockBajo(), 0)));
+        return instrumentoRepository.findDTOConBajoStock(umbralMaximo, umbralDefecto);
+    }
+
+    /**
+     * Notificar a los índices y cachés en memoria (se procesa después del commit)
+     */
+    private void publicarCambio(Long idInstrumento, TipoCambio tipo) {
+        eventPublisher.publishEvent(new InstrumentoModificadoEvent(idInstrumento, tipo));
     }
 }
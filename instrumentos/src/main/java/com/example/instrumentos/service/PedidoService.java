@@ -22,6 +22,8 @@ public class PedidoService {
         private final UsuarioRepository usuarioRepository;
         private final InstrumentoRepository instrumentoRepository;
         private final InstrumentoService instrumentoService;
+        private final SugerenciasIndex sugerenciasIndex;
+        private final PopularidadInstrumentos popularidadInstrumentos;
 
         /**
          * Obtener todos los pedidos
@@ -130,7 +132,7 @@ public class PedidoService {
                                                                 ", Solicitado: " + detalle.getCantidad());
                         }
 
-                        // Obtener precio actual del historial
+                        // Precio vigente desde el índice (incluye precios programados que ya llegaron)
                         Double precioActual = instrumentoService.obtenerPrecioActual(instrumento);
 
                         // Configurar detalle con precio actual del instrumento
@@ -154,6 +156,11 @@ public class PedidoService {
                 // 5. Guardar pedido
                 Pedido pedidoGuardado = pedidoRepository.save(pedido);
 
+                // Popularidad: solo en memoria, se vuelca a la base en lote
+                for (DetallePedido detalle : detallesValidados) {
+                        popularidadInstrumentos.registrarLineaPedido(detalle.getInstrumento().getIdInstrumento());
+                }
+
                 log.info("✅ Pedido creado con ID: {} - Estado: {} - Total: ${}",
                                 pedidoGuardado.getIdPedido(),
                                 pedidoGuardado.getEstado().getDisplayName(),
@@ -189,6 +196,8 @@ public class PedidoService {
                         instrumentoService.actualizarStock(
                                         detalle.getInstrumento().getIdInstrumento(),
                                         detalle.getCantidad());
+                        sugerenciasIndex.registrarVenta(detalle.getInstrumento().getIdInstrumento(),
+                                        detalle.getCantidad());
                 }
 
                 Pedido pedidoActualizado = pedidoRepository.save(pedido);
@@ -257,6 +266,8 @@ public class PedidoService {
                                 instrumentoService.reponerStock(
                                                 detalle.getInstrumento().getIdInstrumento(),
                                                 detalle.getCantidad());
+                                sugerenciasIndex.registrarVenta(detalle.getInstrumento().getIdInstrumento(),
+                                                -detalle.getCantidad());
                         }
                 }
 
@@ -0,0 +1,199 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
+import com.example.instrumentos.model.PopularidadInstrumento;
+import com.example.instrumentos.repository.PopularidadInstrumentoRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de popularidad por instrumento: vistas del detalle y líneas de pedido.
+ * Cada pedido HTTP solo suma en memoria sobre un LongAdder, que reparte las sumas
+ * concurrentes en celdas distintas y no se disputa aunque un producto reciba muchas
+ * visitas a la vez. Una tarea vuelca los incrementos acumulados a la base cada pocos
+ * segundos, en un solo lote: ningún pedido escribe en la base por contar.
+ *
+ * Si un volcado falla, los incrementos vuelven a quedar pendientes para el siguiente.
+ * Lo que no llegó a volcarse antes de un corte abrupto se pierde (son contadores de
+ * ranking, no datos contables).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PopularidadInstrumentos {
+
+    // Una línea de pedido pesa como varias vistas al ordenar por popularidad
+    static final int PESO_LINEA_PEDIDO = 10;
+
+    private static final String SQL_VOLCADO = "INSERT INTO popularidad_instrumento " +
+            "(id_instrumento, vistas, lineas_pedido) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE vistas = vistas + VALUES(vistas), " +
+            "lineas_pedido = lineas_pedido + VALUES(lineas_pedido)";
+
+    private final PopularidadInstrumentoRepository popularidadRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Contadores> contadores = new ConcurrentHashMap<>();
+
+    /**
+     * Cargar los totales guardados al iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        List<PopularidadInstrumento> guardados = popularidadRepository.findAll();
+        for (PopularidadInstrumento p : guardados) {
+            Contadores c = contadores(p.getIdInstrumento());
+            c.vistasGuardadas = p.getVistas();
+            c.lineasGuardadas = p.getLineasPedido();
+        }
+        log.info("🔥 Popularidad cargada: {} instrumento(s)", guardados.size());
+    }
+
+    public void registrarVista(long idInstrumento) {
+        contadores(idInstrumento).vistas.increment();
+    }
+
+    /**
+     * Sumar una línea de pedido; dentro de una transacción se cuenta recién al confirmarse
+     */
+    public void registrarLineaPedido(long idInstrumento) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    contadores(idInstrumento).lineas.increment();
+                }
+            });
+        } else {
+            contadores(idInstrumento).lineas.increment();
+        }
+    }
+
+    public long vistas(long idInstrumento) {
+        Contadores c = contadores.get(idInstrumento);
+        return c != null ? c.vistasGuardadas + c.vistas.sum() : 0;
+    }
+
+    public long lineasPedido(long idInstrumento) {
+        Contadores c = contadores.get(idInstrumento);
+        return c != null ? c.lineasGuardadas + c.lineas.sum() : 0;
+    }
+
+    /**
+     * Ids de los instrumentos más populares (vistas + líneas de pedido ponderadas), de mayor a menor
+     */
+    public List<Long> masPopulares(int limite) {
+        Comparator<Map.Entry<Long, Long>> porPuntaje = Map.Entry.<Long, Long>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+        PriorityQueue<Map.Entry<Long, Long>> mejores = new PriorityQueue<>(porPuntaje);
+        contadores.forEach((id, c) -> {
+            long puntaje = c.puntaje();
+            if (puntaje <= 0) {
+                return;
+            }
+            mejores.add(Map.entry(id, puntaje));
+            if (mejores.size() > limite) {
+                mejores.poll();
+            }
+        });
+
+        List<Long> ids = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            ids.add(mejores.poll().getKey());
+        }
+        return ids.reversed();
+    }
+
+    /**
+     * Volcar a la base los incrementos acumulados desde el volcado anterior, en un lote JDBC
+     */
+    @Scheduled(fixedDelayString = "${instrumentos.popularidad.intervalo-volcado-ms:5000}")
+    public synchronized void volcar() {
+        List<Long> ids = new ArrayList<>();
+        List<Object[]> filas = new ArrayList<>();
+        contadores.forEach((id, c) -> {
+            // sumThenReset no pierde sumas concurrentes: las que llegan después quedan para el próximo
+            long vistas = c.vistas.sumThenReset();
+            long lineas = c.lineas.sumThenReset();
+            if (vistas != 0 || lineas != 0) {
+                ids.add(id);
+                filas.add(new Object[] { id, vistas, lineas });
+            }
+        });
+        if (filas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(SQL_VOLCADO, filas));
+            for (int i = 0; i < ids.size(); i++) {
+                Contadores c = contadores.get(ids.get(i));
+                if (c != null) {
+                    c.vistasGuardadas += (Long) filas.get(i)[1];
+                    c.lineasGuardadas += (Long) filas.get(i)[2];
+                }
+            }
+            log.debug("🔥 Popularidad volcada: {} instrumento(s)", filas.size());
+        } catch (RuntimeException e) {
+            // Se reintenta en el próximo volcado
+            log.error("❌ No se pudo volcar la popularidad de {} instrumento(s)", filas.size(), e);
+            for (int i = 0; i < ids.size(); i++) {
+                Contadores c = contadores.get(ids.get(i));
+                if (c != null) {
+                    c.vistas.add((Long) filas.get(i)[1]);
+                    c.lineas.add((Long) filas.get(i)[2]);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void volcarAlDetener() {
+        volcar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        if (event.tipo() == TipoCambio.ELIMINADO) {
+            contadores.remove(event.idInstrumento());
+            jdbcTemplate.update("DELETE FROM popularidad_instrumento WHERE id_instrumento = ?", event.idInstrumento());
+        }
+    }
+
+    private Contadores contadores(long idInstrumento) {
+        Contadores c = contadores.get(idInstrumento);
+        return c != null ? c : contadores.computeIfAbsent(idInstrumento, id -> new Contadores());
+    }
+
+    private static final class Contadores {
+        private final LongAdder vistas = new LongAdder();
+        private final LongAdder lineas = new LongAdder();
+        // Solo los escribe el volcado (y la carga inicial)
+        private volatile long vistasGuardadas;
+        private volatile long lineasGuardadas;
+
+        long puntaje() {
+            return vistasGuardadas + vistas.sum() + PESO_LINEA_PEDIDO * (lineasGuardadas + lineas.sum());
+        }
+    }
+}
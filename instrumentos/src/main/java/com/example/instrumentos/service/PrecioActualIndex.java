@@ -0,0 +1,378 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.repository.HistorialPrecioRepository;
+import com.example.instrumentos.util.LongDoubleHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de precios por instrumento. Guarda la línea de tiempo completa
+ * (desde cuándo rige cada precio, ordenada) para responder "¿cuánto costaba en tal
+ * instante?" con una búsqueda binaria, y el precio vigente de cada instrumento
+ * (id → precio) para la consulta más frecuente sin ir a la base.
+ *
+ * Los precios programados a futuro quedan en la línea de tiempo y pasan a ser el
+ * vigente en cuanto llega su fecha: la primera lectura posterior los activa.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PrecioActualIndex {
+
+    private final HistorialPrecioRepository historialPrecioRepository;
+
+    // Se reemplazan enteros al cargar; siempre se leen y modifican con el bloqueo tomado
+    private LongDoubleHashMap precios = new LongDoubleHashMap(1024);
+    private Map<Long, LineaDeTiempo> lineas = new HashMap<>();
+    // Instante de activación → instrumentos con un precio programado para ese momento
+    private TreeMap<Long, Set<Long>> activaciones = new TreeMap<>();
+    // Activados en memoria que todavía no se reflejaron en precio_actual
+    private Set<Long> activadosPendientes = new HashSet<>();
+    private volatile long proximaActivacion = Long.MAX_VALUE;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Cargar el historial completo una vez que la aplicación (y DataInitializer) terminó de iniciar.
+     * Las estructuras nuevas se arman sin bloquear y se reemplazan de una vez: las lecturas
+     * no esperan a que termine de recorrerse la tabla.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void cargar() {
+        long inicio = System.currentTimeMillis();
+        int registros = 0;
+
+        Map<Long, LineaDeTiempo> nuevasLineas = new HashMap<>();
+        try (Stream<Object[]> filas = historialPrecioRepository.streamLineaDeTiempo()) {
+            for (Object[] fila : (Iterable<Object[]>) filas::iterator) {
+                long idInstrumento = (Long) fila[0];
+                nuevasLineas.computeIfAbsent(idInstrumento, id -> new LineaDeTiempo())
+                        .agregar(((Date) fila[1]).getTime(), (Double) fila[2]);
+                registros++;
+            }
+        }
+
+        LongDoubleHashMap nuevosPrecios = new LongDoubleHashMap(Math.max(1024, nuevasLineas.size() * 2));
+        TreeMap<Long, Set<Long>> nuevasActivaciones = new TreeMap<>();
+        long ahora = System.currentTimeMillis();
+        nuevasLineas.forEach((id, linea) -> {
+            int vigente = linea.buscar(ahora);
+            if (vigente >= 0) {
+                nuevosPrecios.put(id, linea.precios[vigente]);
+            }
+            for (int i = vigente + 1; i < linea.tamanio; i++) {
+                nuevasActivaciones.computeIfAbsent(linea.desde[i], k -> new HashSet<>()).add(id);
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            precios = nuevosPrecios;
+            lineas = nuevasLineas;
+            activaciones = nuevasActivaciones;
+            activadosPendientes = new HashSet<>();
+            recalcularProximaActivacion();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("💰 Índice de precios cargado: {} instrumento(s), {} registro(s), {} activación(es) programada(s) en {} ms",
+                nuevosPrecios.size(), registros, nuevasActivaciones.size(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Obtener el precio vigente o null si el instrumento no está indexado
+     */
+    public Double obtener(Long idInstrumento) {
+        if (idInstrumento == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= proximaActivacion) {
+            activarVencidos();
+        }
+        lock.readLock().lock();
+        try {
+            double precio = precios.get(idInstrumento, Double.NaN);
+            return Double.isNaN(precio) ? null : precio;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtener el precio que regía en un instante dado (o null si todavía no tenía precio)
+     */
+    public Double obtenerEn(Long idInstrumento, long instante) {
+        lock.readLock().lock();
+        try {
+            LineaDeTiempo linea = lineas.get(idInstrumento);
+            int posicion = linea != null ? linea.buscar(instante) : -1;
+            return posicion >= 0 ? linea.precios[posicion] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Instante del próximo precio programado (Long.MAX_VALUE si no hay ninguno)
+     */
+    public long proximaActivacion() {
+        return proximaActivacion;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return precios.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registrar un precio que rige desde ahora. Si hay una transacción en curso se aplica
+     * recién al confirmarse, para no exponer precios de una transacción que termine en rollback.
+     */
+    public void actualizar(Long idInstrumento, Double precio) {
+        registrar(idInstrumento, System.currentTimeMillis(), precio);
+    }
+
+    /**
+     * Registrar un precio que rige desde el instante indicado (puede ser futuro)
+     */
+    public void registrar(Long idInstrumento, long desde, double precio) {
+        alConfirmar(() -> {
+            lock.writeLock().lock();
+            try {
+                registrarSinBloqueo(idInstrumento, desde, precio);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Registrar muchos precios que rigen desde el mismo instante (un solo bloqueo al confirmarse)
+     */
+    public void actualizarTodos(long[] idsInstrumento, double[] nuevosPrecios, long desde) {
+        alConfirmar(() -> {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < idsInstrumento.length; i++) {
+                    registrarSinBloqueo(idsInstrumento[i], desde, nuevosPrecios[i]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Quitar un instrumento eliminado del índice
+     */
+    public void eliminar(Long idInstrumento) {
+        alConfirmar(() -> {
+            lock.writeLock().lock();
+            try {
+                precios.remove(idInstrumento);
+                lineas.remove(idInstrumento);
+                activadosPendientes.remove(idInstrumento);
+                Iterator<Set<Long>> pendientes = activaciones.values().iterator();
+                while (pendientes.hasNext()) {
+                    Set<Long> ids = pendientes.next();
+                    if (ids.remove(idInstrumento) && ids.isEmpty()) {
+                        pendientes.remove();
+                    }
+                }
+                recalcularProximaActivacion();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Reemplazar la parte de la línea de tiempo anterior al corte por los puntos que dejó la
+     * compactación del historial (al confirmarse). El precio vigente no cambia.
+     */
+    public void compactar(Long idInstrumento, long corte, long[] instantes, double[] nuevosPrecios) {
+        alConfirmar(() -> {
+            lock.writeLock().lock();
+            try {
+                LineaDeTiempo linea = lineas.get(idInstrumento);
+                if (linea != null) {
+                    linea.reemplazarAntesDe(corte, instantes, nuevosPrecios);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Activar los precios programados que ya llegaron y devolver (id → precio vigente) los
+     * que aún no se guardaron en precio_actual. Quien los recibe se encarga de persistirlos.
+     */
+    public Map<Long, Double> tomarActivados() {
+        activarVencidos();
+        lock.writeLock().lock();
+        try {
+            Map<Long, Double> activados = new HashMap<>();
+            for (Long id : activadosPendientes) {
+                double precio = precios.get(id, Double.NaN);
+                if (!Double.isNaN(precio)) {
+                    activados.put(id, precio);
+                }
+            }
+            activadosPendientes.clear();
+            return activados;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Volver a marcar como pendientes los activados que no se pudieron persistir
+     */
+    public void marcarPendientes(Collection<Long> idsInstrumento) {
+        lock.writeLock().lock();
+        try {
+            activadosPendientes.addAll(idsInstrumento);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void activarVencidos() {
+        activarVencidos(System.currentTimeMillis());
+    }
+
+    /**
+     * Activar los precios programados con fecha hasta el instante indicado
+     */
+    void activarVencidos(long ahora) {
+        lock.writeLock().lock();
+        try {
+            while (!activaciones.isEmpty() && activaciones.firstKey() <= ahora) {
+                for (Long id : activaciones.pollFirstEntry().getValue()) {
+                    LineaDeTiempo linea = lineas.get(id);
+                    int vigente = linea != null ? linea.buscar(ahora) : -1;
+                    if (vigente >= 0) {
+                        precios.put(id, linea.precios[vigente]);
+                        activadosPendientes.add(id);
+                    }
+                }
+            }
+            recalcularProximaActivacion();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void registrarSinBloqueo(long idInstrumento, long desde, double precio) {
+        LineaDeTiempo linea = lineas.computeIfAbsent(idInstrumento, id -> new LineaDeTiempo());
+        linea.agregar(desde, precio);
+
+        long ahora = System.currentTimeMillis();
+        if (desde <= ahora) {
+            // Un precio con fecha pasada no pisa a uno posterior ya vigente
+            precios.put(idInstrumento, linea.precios[linea.buscar(ahora)]);
+        } else {
+            activaciones.computeIfAbsent(desde, k -> new HashSet<>()).add(idInstrumento);
+            recalcularProximaActivacion();
+        }
+    }
+
+    private void recalcularProximaActivacion() {
+        proximaActivacion = activaciones.isEmpty() ? Long.MAX_VALUE : activaciones.firstKey();
+    }
+
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Precios de un instrumento ordenados por fecha de vigencia, en arreglos primitivos
+     */
+    private static final class LineaDeTiempo {
+        private long[] desde = new long[2];
+        private double[] precios = new double[2];
+        private int tamanio;
+
+        /**
+         * Insertar manteniendo el orden; con la misma fecha, el último registrado queda después
+         */
+        void agregar(long instante, double precio) {
+            if (tamanio == desde.length) {
+                desde = Arrays.copyOf(desde, tamanio * 2);
+                precios = Arrays.copyOf(precios, tamanio * 2);
+            }
+            int posicion = buscar(instante) + 1;
+            System.arraycopy(desde, posicion, desde, posicion + 1, tamanio - posicion);
+            System.arraycopy(precios, posicion, precios, posicion + 1, tamanio - posicion);
+            desde[posicion] = instante;
+            precios[posicion] = precio;
+            tamanio++;
+        }
+
+        /**
+         * Reemplazar los precios con fecha anterior al corte por los indicados (ordenados)
+         */
+        void reemplazarAntesDe(long corte, long[] instantes, double[] nuevosPrecios) {
+            int resto = tamanio - (buscar(corte - 1) + 1);
+            long[] nuevosDesde = new long[Math.max(2, instantes.length + resto)];
+            double[] nuevosValores = new double[nuevosDesde.length];
+            System.arraycopy(instantes, 0, nuevosDesde, 0, instantes.length);
+            System.arraycopy(nuevosPrecios, 0, nuevosValores, 0, instantes.length);
+            System.arraycopy(desde, tamanio - resto, nuevosDesde, instantes.length, resto);
+            System.arraycopy(precios, tamanio - resto, nuevosValores, instantes.length, resto);
+            desde = nuevosDesde;
+            precios = nuevosValores;
+            tamanio = instantes.length + resto;
+        }
+
+        /**
+         * Posición del último precio con fecha menor o igual al instante (-1 si no hay)
+         */
+        int buscar(long instante) {
+            int bajo = 0;
+            int alto = tamanio - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (desde[medio] <= instante) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio - 1;
+                }
+            }
+            return alto;
+        }
+    }
+}
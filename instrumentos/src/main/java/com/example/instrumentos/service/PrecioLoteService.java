@@ -0,0 +1,166 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.dto.request.ActualizarPreciosLoteDTO;
+import com.example.instrumentos.dto.request.ActualizarPreciosLoteDTO.PrecioInstrumento;
+import com.example.instrumentos.dto.response.ResultadoPreciosLoteDTO;
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import com.example.instrumentos.util.LongDoubleHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actualización masiva de precios. Los precios vigentes se leen con pocas consultas,
+ * solo los que cambian generan historial y las escrituras van en lotes JDBC
+ * (un INSERT al historial y un UPDATE de precio_actual por instrumento, agrupados).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PrecioLoteService {
+
+    private static final int TAMANIO_LOTE = 500;
+    private static final int IDS_POR_CONSULTA = 1000;
+    private static final int MAX_IDS_REPORTADOS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PrecioActualIndex precioActualIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public ResultadoPreciosLoteDTO actualizar(ActualizarPreciosLoteDTO lote) {
+        long inicio = System.currentTimeMillis();
+        boolean porLista = lote.getPrecios() != null && !lote.getPrecios().isEmpty();
+        boolean porRegla = lote.getPorcentaje() != null;
+        if (porLista == porRegla) {
+            throw new IllegalArgumentException("Debe enviarse una lista de precios o un porcentaje (no ambos)");
+        }
+
+        List<Cambio> cambios = new ArrayList<>();
+        List<Long> noEncontrados = new ArrayList<>();
+        int solicitados;
+
+        if (porLista) {
+            // Si un instrumento se repite, vale el último precio de la lista
+            Map<Long, Double> pedidos = new LinkedHashMap<>();
+            for (PrecioInstrumento p : lote.getPrecios()) {
+                pedidos.put(p.getInstrumentoId(), p.getPrecio());
+            }
+            solicitados = pedidos.size();
+
+            LongDoubleHashMap vigentes = preciosVigentes(new ArrayList<>(pedidos.keySet()));
+            pedidos.forEach((id, precio) -> {
+                if (!vigentes.containsKey(id)) {
+                    noEncontrados.add(id);
+                } else if (cambio(vigentes.get(id, Double.NaN), precio)) {
+                    cambios.add(new Cambio(id, precio));
+                }
+            });
+        } else {
+            double factor = 1 + lote.getPorcentaje() / 100.0;
+            String sql = "SELECT id_instrumento, precio_actual FROM instrumentos WHERE precio_actual IS NOT NULL";
+            Object[] parametros = {};
+            if (lote.getIdCategoria() != null) {
+                sql += " AND id_categoria_instrumento = ?";
+                parametros = new Object[] { lote.getIdCategoria() };
+            }
+            List<Cambio> candidatos = jdbcTemplate.query(sql,
+                    (rs, n) -> new Cambio(rs.getLong(1), rs.getDouble(2)), parametros);
+            solicitados = candidatos.size();
+
+            for (Cambio candidato : candidatos) {
+                double nuevo = redondear(candidato.precio() * factor);
+                if (nuevo >= 0.01 && cambio(candidato.precio(), nuevo)) {
+                    cambios.add(new Cambio(candidato.idInstrumento(), nuevo));
+                }
+            }
+        }
+
+        guardar(cambios);
+
+        long duracion = System.currentTimeMillis() - inicio;
+        log.info("💰 Lote de precios: {} solicitado(s), {} actualizado(s), {} no encontrado(s) en {} ms",
+                solicitados, cambios.size(), noEncontrados.size(), duracion);
+
+        return new ResultadoPreciosLoteDTO(
+                solicitados,
+                cambios.size(),
+                solicitados - cambios.size() - noEncontrados.size(),
+                noEncontrados.size(),
+                noEncontrados.subList(0, Math.min(noEncontrados.size(), MAX_IDS_REPORTADOS)),
+                duracion);
+    }
+
+    private void guardar(List<Cambio> cambios) {
+        if (cambios.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO historial_precio_instrumento (id_instrumento, precio, fecha_vigencia) VALUES (?, ?, ?)",
+                cambios, TAMANIO_LOTE, (ps, c) -> {
+                    ps.setLong(1, c.idInstrumento());
+                    ps.setDouble(2, c.precio());
+                    ps.setTimestamp(3, ahora);
+                });
+        jdbcTemplate.batchUpdate(
+                "UPDATE instrumentos SET precio_actual = ? WHERE id_instrumento = ?",
+                cambios, TAMANIO_LOTE, (ps, c) -> {
+                    ps.setDouble(1, c.precio());
+                    ps.setLong(2, c.idInstrumento());
+                });
+
+        long[] ids = new long[cambios.size()];
+        double[] precios = new double[cambios.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = cambios.get(i).idInstrumento();
+            precios[i] = cambios.get(i).precio();
+        }
+        // Primero el índice de precios: los oyentes del evento PRECIO lo leen después del commit
+        precioActualIndex.actualizarTodos(ids, precios, ahora.getTime());
+        eventPublisher.publishEvent(InstrumentosModificadosEvent.precios(Arrays.stream(ids).boxed().toList()));
+    }
+
+    /**
+     * Precio vigente de cada id existente (NaN si todavía no tiene precio), en consultas de hasta mil ids
+     */
+    private LongDoubleHashMap preciosVigentes(List<Long> ids) {
+        LongDoubleHashMap vigentes = new LongDoubleHashMap(ids.size() * 2);
+        for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+            List<Long> bloque = ids.subList(desde, Math.min(desde + IDS_POR_CONSULTA, ids.size()));
+            String marcadores = String.join(",", Collections.nCopies(bloque.size(), "?"));
+            jdbcTemplate.query(
+                    "SELECT id_instrumento, precio_actual FROM instrumentos WHERE id_instrumento IN (" + marcadores + ")",
+                    rs -> {
+                        double precio = rs.getDouble(2);
+                        vigentes.put(rs.getLong(1), rs.wasNull() ? Double.NaN : precio);
+                    },
+                    bloque.toArray());
+        }
+        return vigentes;
+    }
+
+    private static boolean cambio(double vigente, double nuevo) {
+        // Misma tolerancia de un centavo que la actualización individual
+        return Double.isNaN(vigente) || Math.abs(vigente - nuevo) >= 0.01;
+    }
+
+    private static double redondear(double precio) {
+        return Math.round(precio * 100.0) / 100.0;
+    }
+
+    private record Cambio(long idInstrumento, double precio) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Refleja en precio_actual los precios programados que ya entraron en vigencia.
+ * El índice los activa al llegar su fecha; esta tarea solo persiste los activados
+ * (en un lote JDBC) y avisa del cambio al resto de los índices y cachés.
+ *
+ * Además de la pasada periódica, se agenda una ejecución para el instante exacto del
+ * próximo precio programado: así las cachés, el ETag del catálogo y los resúmenes se
+ * actualizan cuando el precio empieza a regir y no hasta la siguiente pasada.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PreciosProgramadosJob {
+
+    private final PrecioActualIndex precioActualIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskScheduler taskScheduler;
+
+    private final Object agenda = new Object();
+    private ScheduledFuture<?> proximaEjecucion;
+    private long instanteAgendado = Long.MAX_VALUE;
+
+    @Scheduled(fixedDelayString = "${instrumentos.precios.intervalo-activacion-ms:15000}")
+    public synchronized void activarPreciosProgramados() {
+        try {
+            persistirActivados();
+        } finally {
+            agendar(precioActualIndex.proximaActivacion());
+        }
+    }
+
+    /**
+     * Agendar una ejecución para el instante indicado si es anterior a la ya agendada
+     */
+    public void agendar(long instante) {
+        if (instante == Long.MAX_VALUE) {
+            return;
+        }
+        synchronized (agenda) {
+            // Una ejecución cuyo instante ya pasó está corriendo (o por correr): no cuenta como pendiente
+            boolean pendiente = proximaEjecucion != null && !proximaEjecucion.isDone()
+                    && instanteAgendado > System.currentTimeMillis();
+            if (pendiente && instanteAgendado <= instante) {
+                return;
+            }
+            if (pendiente) {
+                proximaEjecucion.cancel(false);
+            }
+            instanteAgendado = instante;
+            proximaEjecucion = taskScheduler.schedule(this::activarPreciosProgramados, Instant.ofEpochMilli(instante));
+        }
+    }
+
+    private void persistirActivados() {
+        Map<Long, Double> activados = precioActualIndex.tomarActivados();
+        if (activados.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> filas = new ArrayList<>(activados.size());
+        activados.forEach((id, precio) -> filas.add(new Object[] { precio, id }));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate("UPDATE instrumentos SET precio_actual = ? WHERE id_instrumento = ?", filas);
+                eventPublisher.publishEvent(InstrumentosModificadosEvent.precios(List.copyOf(activados.keySet())));
+            });
+            log.info("🗓️ {} precio(s) programado(s) entraron en vigencia", activados.size());
+        } catch (RuntimeException e) {
+            // Se reintenta en la próxima ejecución
+            log.error("❌ No se pudieron guardar los precios programados activados", e);
+            precioActualIndex.marcarPendientes(activados.keySet());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.util.CamposSolicitados;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Listados de instrumentos y pedidos con solo los campos pedidos (parámetro fields).
+ * La consulta selecciona únicamente las columnas necesarias y cada fila se arma como
+ * un mapa con la misma forma que el DTO completo, así la base lee menos y la respuesta
+ * pesa menos. Los ids siempre se incluyen. Los JPQL se arman con expresiones fijas
+ * de esta clase: los nombres que envía el cliente solo eligen entre ellas.
+ *
+ * La descripción de un instrumento es una columna de texto larga que los listados no
+ * leen: solo sale si se nombra en fields o si se pide un único instrumento por id.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ProyeccionCamposService {
+
+    public static final List<String> CAMPOS_INSTRUMENTO = List.of("idInstrumento", "denominacion", "marca",
+            "stock", "descripcion", "imagen", "precioActual", "categoriaInstrumento");
+    public static final List<String> CAMPOS_CATEGORIA = List.of("idCategoriaInstrumento", "denominacion");
+    public static final List<String> CAMPOS_PEDIDO = List.of("id", "fecha", "estado", "total", "usuario", "detalles");
+    public static final List<String> CAMPOS_USUARIO = List.of("id", "nombre", "apellido", "email", "rol", "activo");
+    public static final List<String> CAMPOS_DETALLE = List.of("id", "instrumento", "cantidad", "precioUnitario",
+            "subtotal");
+
+    private static final int IDS_POR_CONSULTA = 1000;
+
+    private final EntityManager entityManager;
+    private final PrecioActualIndex precioActualIndex;
+
+    /**
+     * Instrumentos del catálogo (opcionalmente de una categoría o uno solo por id)
+     */
+    public List<Map<String, Object>> instrumentos(CamposSolicitados campos, Long idCategoria, Long idInstrumento) {
+        Proyeccion proyeccion = new Proyeccion();
+        agregarInstrumento(proyeccion, "", campos, "i.precioActual", idInstrumento != null);
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(proyeccion.select())
+                .append(" FROM Instrumento i JOIN i.categoriaInstrumento c WHERE 1 = 1");
+        if (idCategoria != null) {
+            jpql.append(" AND c.idCategoriaInstrumento = :idCategoria");
+        }
+        if (idInstrumento != null) {
+            jpql.append(" AND i.idInstrumento = :idInstrumento");
+        }
+        jpql.append(" ORDER BY i.idInstrumento");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        if (idCategoria != null) {
+            query.setParameter("idCategoria", idCategoria);
+        }
+        if (idInstrumento != null) {
+            query.setParameter("idInstrumento", idInstrumento);
+        }
+
+        boolean conPrecio = campos.incluye("precioActual");
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        for (Object[] fila : query.getResultList()) {
+            Map<String, Object> instrumento = proyeccion.armar(fila, 0);
+            if (conPrecio) {
+                // El índice ya contempla los precios programados que entraron en vigencia
+                Double indexado = precioActualIndex.obtener((Long) instrumento.get("idInstrumento"));
+                Object columna = instrumento.get("precioActual");
+                instrumento.put("precioActual", indexado != null ? indexado : columna != null ? columna : 0.0);
+            }
+            resultado.add(instrumento);
+        }
+        return resultado;
+    }
+
+    /**
+     * Pedidos (todos, de un usuario o uno solo por id), con sus detalles si se pidieron
+     */
+    public List<Map<String, Object>> pedidos(CamposSolicitados campos, Long usuarioId, Long idPedido) {
+        campos.validar(CAMPOS_PEDIDO);
+
+        Proyeccion proyeccion = new Proyeccion();
+        proyeccion.agregar("id", "p.idPedido");
+        agregarSi(proyeccion, campos, "fecha", "fecha", "p.fecha");
+        agregarSi(proyeccion, campos, "estado", "estado", "p.estado");
+        agregarSi(proyeccion, campos, "total", "total", "p.totalPedido");
+        if (campos.incluye("usuario")) {
+            CamposSolicitados usuario = campos.de("usuario").validar(CAMPOS_USUARIO);
+            proyeccion.agregar("usuario.id", "u.idUsuario");
+            agregarSi(proyeccion, usuario, "nombre", "usuario.nombre", "u.nombre");
+            agregarSi(proyeccion, usuario, "apellido", "usuario.apellido", "u.apellido");
+            agregarSi(proyeccion, usuario, "email", "usuario.email", "u.email");
+            agregarSi(proyeccion, usuario, "rol", "usuario.rol", "u.rol");
+            agregarSi(proyeccion, usuario, "activo", "usuario.activo", "u.activo");
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(proyeccion.select())
+                .append(" FROM Pedido p JOIN p.usuario u WHERE 1 = 1");
+        if (usuarioId != null) {
+            jpql.append(" AND u.idUsuario = :usuarioId");
+        }
+        if (idPedido != null) {
+            jpql.append(" AND p.idPedido = :idPedido");
+        }
+        jpql.append(usuarioId != null ? " ORDER BY p.fecha DESC, p.idPedido DESC" : " ORDER BY p.idPedido");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        if (usuarioId != null) {
+            query.setParameter("usuarioId", usuarioId);
+        }
+        if (idPedido != null) {
+            query.setParameter("idPedido", idPedido);
+        }
+
+        Map<Long, Map<String, Object>> pedidos = new LinkedHashMap<>();
+        for (Object[] fila : query.getResultList()) {
+            Map<String, Object> pedido = proyeccion.armar(fila, 0);
+            pedidos.put((Long) pedido.get("id"), pedido);
+        }
+
+        if (campos.incluye("detalles") && !pedidos.isEmpty()) {
+            agregarDetalles(pedidos, campos.de("detalles").validar(CAMPOS_DETALLE));
+        }
+        return new ArrayList<>(pedidos.values());
+    }
+
+    /**
+     * Detalles de muchos pedidos con una consulta por tanda de ids; el precio del
+     * instrumento en un detalle es el precio al que se vendió, como en PedidoMapper
+     */
+    private void agregarDetalles(Map<Long, Map<String, Object>> pedidos, CamposSolicitados campos) {
+        Proyeccion proyeccion = new Proyeccion();
+        proyeccion.agregar("id", "d.idDetallePedido");
+        agregarSi(proyeccion, campos, "cantidad", "cantidad", "d.cantidad");
+        agregarSi(proyeccion, campos, "precioUnitario", "precioUnitario", "COALESCE(d.precioUnitario, 0.0)");
+        agregarSi(proyeccion, campos, "subtotal", "subtotal", "COALESCE(d.precioUnitario, 0.0) * d.cantidad");
+        if (campos.incluye("instrumento")) {
+            agregarInstrumento(proyeccion, "instrumento.", campos.de("instrumento"), "COALESCE(d.precioUnitario, 0.0)",
+                    false);
+        }
+
+        String jpql = "SELECT d.pedido.idPedido, " + proyeccion.select() +
+                " FROM DetallePedido d JOIN d.instrumento i JOIN i.categoriaInstrumento c" +
+                " WHERE d.pedido.idPedido IN :ids ORDER BY d.idDetallePedido";
+
+        Map<Long, List<Map<String, Object>>> detallesPorPedido = new HashMap<>();
+        List<Long> ids = new ArrayList<>(pedidos.keySet());
+        for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+            List<Long> tanda = ids.subList(desde, Math.min(desde + IDS_POR_CONSULTA, ids.size()));
+            for (Object[] fila : entityManager.createQuery(jpql, Object[].class)
+                    .setParameter("ids", tanda)
+                    .getResultList()) {
+                detallesPorPedido.computeIfAbsent((Long) fila[0], k -> new ArrayList<>())
+                        .add(proyeccion.armar(fila, 1));
+            }
+        }
+
+        pedidos.forEach((id, pedido) -> pedido.put("detalles", detallesPorPedido.getOrDefault(id, List.of())));
+    }
+
+    private static void agregarInstrumento(Proyeccion proyeccion, String prefijo, CamposSolicitados campos,
+            String expresionPrecio, boolean conDescripcion) {
+        campos.validar(CAMPOS_INSTRUMENTO);
+        proyeccion.agregar(prefijo + "idInstrumento", "i.idInstrumento");
+        agregarSi(proyeccion, campos, "denominacion", prefijo + "denominacion", "i.denominacion");
+        agregarSi(proyeccion, campos, "marca", prefijo + "marca", "i.marca");
+        agregarSi(proyeccion, campos, "stock", prefijo + "stock", "i.stock");
+        if (campos.nombra("descripcion") || (conDescripcion && campos.incluye("descripcion"))) {
+            proyeccion.agregar(prefijo + "descripcion", "i.descripcion");
+        }
+        agregarSi(proyeccion, campos, "imagen", prefijo + "imagen", "i.imagen");
+        agregarSi(proyeccion, campos, "precioActual", prefijo + "precioActual", expresionPrecio);
+        if (campos.incluye("categoriaInstrumento")) {
+            CamposSolicitados categoria = campos.de("categoriaInstrumento").validar(CAMPOS_CATEGORIA);
+            proyeccion.agregar(prefijo + "categoriaInstrumento.idCategoriaInstrumento", "c.idCategoriaInstrumento");
+            agregarSi(proyeccion, categoria, "denominacion", prefijo + "categoriaInstrumento.denominacion",
+                    "c.denominacion");
+        }
+    }
+
+    private static void agregarSi(Proyeccion proyeccion, CamposSolicitados campos, String campo, String ruta,
+            String expresion) {
+        if (campos.incluye(campo)) {
+            proyeccion.agregar(ruta, expresion);
+        }
+    }
+
+    /**
+     * Columnas a seleccionar y dónde va cada una en el objeto de salida ("usuario.nombre")
+     */
+    private static final class Proyeccion {
+        private final List<String[]> rutas = new ArrayList<>();
+        private final List<String> expresiones = new ArrayList<>();
+
+        void agregar(String ruta, String expresion) {
+            rutas.add(ruta.split("\\."));
+            expresiones.add(expresion);
+        }
+
+        String select() {
+            return String.join(", ", expresiones);
+        }
+
+        /**
+         * Armar el objeto a partir de la fila, empezando en la columna indicada
+         */
+        @SuppressWarnings("unchecked")
+        Map<String, Object> armar(Object[] fila, int desde) {
+            Map<String, Object> objeto = new LinkedHashMap<>();
+            for (int k = 0; k < rutas.size(); k++) {
+                Object valor = fila[desde + k];
+                if (valor == null) {
+                    // Igual que los DTOs, que se serializan sin los campos nulos
+                    continue;
+                }
+                String[] ruta = rutas.get(k);
+                Map<String, Object> destino = objeto;
+                for (int n = 0; n < ruta.length - 1; n++) {
+                    destino = (Map<String, Object>) destino.computeIfAbsent(ruta[n], r -> new LinkedHashMap<>());
+                }
+                destino.put(ruta[ruta.length - 1], valor);
+            }
+            return objeto;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Registro acotado de los cambios del catálogo para la sincronización incremental.
+ * Cada escritura confirmada sobre un instrumento (alta, modificación, baja, precio o
+ * stock) recibe un número de secuencia creciente y queda en un búfer circular de
+ * arreglos primitivos: preguntar "qué cambió desde N" recorre solo los cambios
+ * posteriores a N.
+ *
+ * Un lote de precios o de stock ocupa una sola entrada con todos sus ids, así que una
+ * importación grande no desplaza el resto del registro. La capacidad cuenta entradas
+ * (escrituras confirmadas), no instrumentos.
+ *
+ * Cuando el búfer se llena se descartan los cambios más viejos; un cliente que pide
+ * desde una secuencia ya descartada (o de antes de un reinicio) debe resincronizar
+ * el catálogo completo. La secuencia arranca en la hora de inicio en milisegundos, así
+ * sigue creciendo entre reinicios y las secuencias viejas quedan fuera del registro.
+ */
+@Component
+public class RegistroCambiosCatalogo {
+
+    private static final TipoCambio[] TIPOS = TipoCambio.values();
+
+    private final long[] ids;
+    // Ids de las entradas que son lotes (null en las de un solo instrumento)
+    private final long[][] lotes;
+    private final byte[] tipos;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Posición donde se escribe el próximo cambio y cantidad de cambios guardados
+    private int siguiente;
+    private int tamanio;
+    private long ultimaSecuencia = System.currentTimeMillis();
+
+    public RegistroCambiosCatalogo(@Value("${instrumentos.cambios.capacidad:10000}") int capacidad) {
+        this.ids = new long[Math.max(1, capacidad)];
+        this.lotes = new long[ids.length][];
+        this.tipos = new byte[ids.length];
+    }
+
+    /**
+     * Registrar el cambio después del commit, para que la secuencia siga el orden de confirmación
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        registrar(event.idInstrumento(), event.tipo());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentosModificados(InstrumentosModificadosEvent event) {
+        registrarLote(event.idsInstrumento().stream().mapToLong(Long::longValue).toArray(), event.tipo());
+    }
+
+    public long registrar(long idInstrumento, TipoCambio tipo) {
+        lock.writeLock().lock();
+        try {
+            return agregarSinBloqueo(idInstrumento, null, tipo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long registrarLote(long[] idsInstrumento, TipoCambio tipo) {
+        lock.writeLock().lock();
+        try {
+            return agregarSinBloqueo(0, idsInstrumento.clone(), tipo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long ultimaSecuencia() {
+        lock.readLock().lock();
+        try {
+            return ultimaSecuencia;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Instrumentos que cambiaron después de la secuencia indicada, en orden del primer cambio,
+     * con el último tipo de cambio de cada uno. Se detiene al juntar el límite de instrumentos;
+     * un lote se devuelve entero, así que la primera entrada puede superar el límite.
+     * Devuelve null si los cambios pedidos ya no están en el registro (hay que resincronizar).
+     */
+    public Cambios cambiosDesde(long desde, int limite) {
+        lock.readLock().lock();
+        try {
+            long primeraDisponible = ultimaSecuencia - tamanio + 1;
+            if (desde < primeraDisponible - 1 || desde > ultimaSecuencia) {
+                return null;
+            }
+
+            Map<Long, TipoCambio> ultimos = new LinkedHashMap<>();
+            long hasta = desde;
+            for (long secuencia = desde + 1; secuencia <= ultimaSecuencia; secuencia++) {
+                int posicion = Math.floorMod(siguiente - (int) (ultimaSecuencia - secuencia) - 1, ids.length);
+                TipoCambio tipo = TIPOS[tipos[posicion]];
+                long[] lote = lotes[posicion];
+                if (lote == null) {
+                    long id = ids[posicion];
+                    if (!ultimos.containsKey(id) && ultimos.size() >= limite) {
+                        break;
+                    }
+                    ultimos.put(id, tipo);
+                } else {
+                    if (!ultimos.isEmpty() && nuevos(ultimos, lote) > limite - ultimos.size()) {
+                        break;
+                    }
+                    for (long id : lote) {
+                        ultimos.put(id, tipo);
+                    }
+                }
+                hasta = secuencia;
+            }
+
+            List<Long> modificados = new ArrayList<>();
+            List<Long> eliminados = new ArrayList<>();
+            ultimos.forEach((id, tipo) -> (tipo == TipoCambio.ELIMINADO ? eliminados : modificados).add(id));
+            return new Cambios(hasta, hasta < ultimaSecuencia, modificados, eliminados);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long agregarSinBloqueo(long idInstrumento, long[] lote, TipoCambio tipo) {
+        ids[siguiente] = idInstrumento;
+        lotes[siguiente] = lote;
+        tipos[siguiente] = (byte) tipo.ordinal();
+        siguiente = (siguiente + 1) % ids.length;
+        tamanio = Math.min(tamanio + 1, ids.length);
+        return ++ultimaSecuencia;
+    }
+
+    private static int nuevos(Map<Long, TipoCambio> ultimos, long[] lote) {
+        int nuevos = 0;
+        for (long id : lote) {
+            if (!ultimos.containsKey(id)) {
+                nuevos++;
+            }
+        }
+        return nuevos;
+    }
+
+    /**
+     * Cambios hasta la secuencia "hasta" inclusive; si hayMas, el cliente sigue pidiendo desde ahí
+     */
+    public record Cambios(long hasta, boolean hayMas, List<Long> modificados, List<Long> eliminados) {
+    }
+}
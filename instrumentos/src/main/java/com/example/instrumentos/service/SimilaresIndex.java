@@ -0,0 +1,418 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import com.example.instrumentos.util.TextoNormalizador;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instrumentos parecidos a uno dado, según su contenido. Cada instrumento es un vector
+ * TF-IDF con los términos del nombre (con más peso) y de la descripción, más un término
+ * para su categoría y otro para su marca que suman afinidad. Una tarea en segundo plano
+ * calcula los vecinos más cercanos por similitud coseno y los guarda en una tabla de
+ * arreglos primitivos: consultar los similares de un instrumento es una sola búsqueda.
+ *
+ * Los instrumentos creados, modificados o eliminados quedan pendientes y la tarea los
+ * recalcula en la próxima pasada, junto con los que los tenían entre sus vecinos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SimilaresIndex {
+
+    public static final int VECINOS = 20;
+
+    private static final float PESO_NOMBRE = 2.0f;
+    private static final float PESO_DESCRIPCION = 1.0f;
+    private static final float PESO_CATEGORIA = 1.5f;
+    private static final float PESO_MARCA = 1.0f;
+    // Se recorren primero los términos más raros; los comunes solo si faltan candidatos
+    private static final int CANDIDATOS_MAXIMO = 500;
+    // Los términos de categoría y marca no se confunden con palabras del texto
+    private static final String PREFIJO_CATEGORIA = "\u0001c:";
+    private static final String PREFIJO_MARCA = "\u0001m:";
+
+    private final InstrumentoRepository instrumentoRepository;
+
+    // Solo la tarea (un hilo a la vez) toca documentos, términos y listas invertidas
+    private final Map<Long, Documento> documentos = new HashMap<>();
+    private final Map<String, Integer> terminos = new HashMap<>();
+    private final List<Set<Long>> instrumentosPorTermino = new ArrayList<>();
+
+    // Lo que se consulta desde los pedidos HTTP
+    private final Map<Long, Vecinos> tabla = new ConcurrentHashMap<>();
+    private final Set<Long> pendientes = ConcurrentHashMap.newKeySet();
+    private volatile boolean completo = true;
+
+    /**
+     * Cargar los textos al iniciar; la primera pasada de la tarea calcula toda la tabla
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void cargar() {
+        long inicio = System.currentTimeMillis();
+        documentos.clear();
+        terminos.clear();
+        instrumentosPorTermino.clear();
+        for (Object[] fila : instrumentoRepository.findTextosSimilares()) {
+            agregarDocumento(fila);
+        }
+        completo = true;
+
+        log.info("🧭 Textos para similares cargados: {} instrumento(s), {} término(s) en {} ms",
+                documentos.size(), terminos.size(), System.currentTimeMillis() - inicio);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        switch (event.tipo()) {
+            case CREADO, ACTUALIZADO, ELIMINADO -> pendientes.add(event.idInstrumento());
+            default -> {
+                // Precio y stock no cambian el contenido
+            }
+        }
+    }
+
+    /**
+     * Ids de los instrumentos más parecidos, del más al menos parecido
+     */
+    public List<Long> similares(long idInstrumento, int limite) {
+        Vecinos vecinos = tabla.get(idInstrumento);
+        if (vecinos == null) {
+            return List.of();
+        }
+        int cantidad = Math.min(limite, vecinos.ids().length);
+        List<Long> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ids.add(vecinos.ids()[i]);
+        }
+        return ids;
+    }
+
+    public int size() {
+        return tabla.size();
+    }
+
+    @Scheduled(fixedDelayString = "${instrumentos.similares.intervalo-ms:60000}")
+    public synchronized void recalcular() {
+        long inicio = System.currentTimeMillis();
+        if (completo) {
+            completo = false;
+            pendientes.clear();
+            recalcularTodos();
+            log.info("🧭 Similares calculados para {} instrumento(s) en {} ms",
+                    tabla.size(), System.currentTimeMillis() - inicio);
+            return;
+        }
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        Set<Long> cambiados = new HashSet<>(pendientes);
+        pendientes.removeAll(cambiados);
+        int recalculados = recalcularCambiados(cambiados);
+        log.info("🧭 Similares actualizados: {} instrumento(s) modificado(s), {} lista(s) recalculada(s) en {} ms",
+                cambiados.size(), recalculados, System.currentTimeMillis() - inicio);
+    }
+
+    private void recalcularTodos() {
+        // Los pesos dependen de la frecuencia de cada término en todo el catálogo
+        documentos.values().forEach(documento -> documento.pesos = null);
+        Map<Long, Vecinos> nueva = new HashMap<>();
+        for (Long id : documentos.keySet()) {
+            nueva.put(id, calcularVecinos(id, null));
+        }
+        tabla.keySet().retainAll(nueva.keySet());
+        tabla.putAll(nueva);
+    }
+
+    /**
+     * Recalcular los modificados, los que los tenían de vecinos y sumar los modificados a
+     * las listas de otros instrumentos en las que ahora entran
+     */
+    private int recalcularCambiados(Set<Long> cambiados) {
+        for (Long id : cambiados) {
+            quitarDocumento(id);
+        }
+        for (Object[] fila : instrumentoRepository.findTextosSimilaresByIds(cambiados)) {
+            agregarDocumento(fila);
+        }
+
+        Set<Long> afectados = new HashSet<>();
+        tabla.forEach((id, vecinos) -> {
+            for (long vecino : vecinos.ids()) {
+                if (cambiados.contains(vecino)) {
+                    afectados.add(id);
+                    break;
+                }
+            }
+        });
+        cambiados.forEach(tabla::remove);
+        afectados.removeAll(cambiados);
+
+        Map<Long, Map<Long, Float>> puntajesCambiados = new HashMap<>();
+        for (Long id : cambiados) {
+            if (documentos.containsKey(id)) {
+                Map<Long, Float> puntajes = new HashMap<>();
+                tabla.put(id, calcularVecinos(id, puntajes));
+                puntajesCambiados.put(id, puntajes);
+            }
+        }
+        for (Long id : afectados) {
+            if (documentos.containsKey(id)) {
+                tabla.put(id, calcularVecinos(id, null));
+            }
+        }
+
+        // La similitud es simétrica: un modificado puede entrar en la lista de sus candidatos
+        puntajesCambiados.forEach((id, puntajes) -> puntajes.forEach((otro, puntaje) -> {
+            if (!afectados.contains(otro) && !cambiados.contains(otro)) {
+                Vecinos vecinos = tabla.get(otro);
+                if (vecinos != null) {
+                    tabla.put(otro, vecinos.con(id, puntaje));
+                }
+            }
+        }));
+        return cambiados.size() + afectados.size();
+    }
+
+    /**
+     * Los VECINOS más parecidos por similitud coseno. Los candidatos salen de las listas
+     * invertidas de sus términos, empezando por los menos frecuentes.
+     */
+    private Vecinos calcularVecinos(long id, Map<Long, Float> puntajesSalida) {
+        Documento documento = documentos.get(id);
+        float[] pesos = pesos(documento);
+
+        Integer[] orden = new Integer[documento.terminos.length];
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, Comparator.comparingInt(i -> instrumentosPorTermino.get(documento.terminos[i]).size()));
+
+        Set<Long> candidatos = new HashSet<>();
+        for (int i : orden) {
+            for (Long otro : instrumentosPorTermino.get(documento.terminos[i])) {
+                if (candidatos.size() >= CANDIDATOS_MAXIMO) {
+                    break;
+                }
+                if (otro != id) {
+                    candidatos.add(otro);
+                }
+            }
+        }
+
+        TreeMap<Float, List<Long>> mejores = new TreeMap<>();
+        int cantidad = 0;
+        for (Long otro : candidatos) {
+            Documento documentoOtro = documentos.get(otro);
+            float puntaje = coseno(documento, pesos, documentoOtro, pesos(documentoOtro));
+            if (puntaje <= 0) {
+                continue;
+            }
+            if (puntajesSalida != null) {
+                puntajesSalida.put(otro, puntaje);
+            }
+            if (cantidad < VECINOS || puntaje > mejores.firstKey()) {
+                mejores.computeIfAbsent(puntaje, p -> new ArrayList<>(1)).add(otro);
+                if (++cantidad > VECINOS) {
+                    List<Long> peores = mejores.firstEntry().getValue();
+                    peores.remove(peores.size() - 1);
+                    if (peores.isEmpty()) {
+                        mejores.pollFirstEntry();
+                    }
+                    cantidad--;
+                }
+            }
+        }
+
+        long[] ids = new long[cantidad];
+        float[] puntajes = new float[cantidad];
+        int i = 0;
+        for (Map.Entry<Float, List<Long>> entrada : mejores.descendingMap().entrySet()) {
+            for (Long otro : entrada.getValue()) {
+                ids[i] = otro;
+                puntajes[i++] = entrada.getKey();
+            }
+        }
+        return new Vecinos(ids, puntajes);
+    }
+
+    /**
+     * Pesos TF-IDF normalizados (norma 1). Se calculan una vez por pasada: en las
+     * incrementales los instrumentos sin cambios conservan los de la última pasada completa.
+     */
+    private float[] pesos(Documento documento) {
+        if (documento.pesos != null) {
+            return documento.pesos;
+        }
+        int total = documentos.size();
+        float[] pesos = new float[documento.terminos.length];
+        double norma = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            int frecuencia = instrumentosPorTermino.get(documento.terminos[i]).size();
+            double idf = Math.log(1.0 + (double) total / frecuencia);
+            pesos[i] = (float) ((1.0 + Math.log(documento.frecuencias[i])) * documento.refuerzos[i] * idf);
+            norma += pesos[i] * pesos[i];
+        }
+        if (norma > 0) {
+            float inversa = (float) (1.0 / Math.sqrt(norma));
+            for (int i = 0; i < pesos.length; i++) {
+                pesos[i] *= inversa;
+            }
+        }
+        documento.pesos = pesos;
+        return pesos;
+    }
+
+    /**
+     * Producto escalar de dos vectores dispersos con los términos ordenados
+     */
+    private static float coseno(Documento a, float[] pesosA, Documento b, float[] pesosB) {
+        float suma = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.terminos.length && j < b.terminos.length) {
+            int comparacion = Integer.compare(a.terminos[i], b.terminos[j]);
+            if (comparacion == 0) {
+                suma += pesosA[i++] * pesosB[j++];
+            } else if (comparacion < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return suma;
+    }
+
+    /**
+     * Fila: id, denominación, descripción, marca e id de categoría
+     */
+    private void agregarDocumento(Object[] fila) {
+        long id = (Long) fila[0];
+        TreeMap<Integer, float[]> conteo = new TreeMap<>();
+        for (String termino : TextoNormalizador.terminos((String) fila[1])) {
+            contar(conteo, termino, PESO_NOMBRE);
+        }
+        for (String termino : TextoNormalizador.terminos((String) fila[2])) {
+            contar(conteo, termino, PESO_DESCRIPCION);
+        }
+        String marca = TextoNormalizador.normalizar(fila[3] == null ? "" : ((String) fila[3]).trim());
+        if (!marca.isEmpty()) {
+            contar(conteo, PREFIJO_MARCA + marca, PESO_MARCA);
+        }
+        if (fila[4] != null) {
+            contar(conteo, PREFIJO_CATEGORIA + fila[4], PESO_CATEGORIA);
+        }
+
+        Documento documento = new Documento(conteo.size());
+        int i = 0;
+        for (Map.Entry<Integer, float[]> entrada : conteo.entrySet()) {
+            documento.terminos[i] = entrada.getKey();
+            documento.frecuencias[i] = entrada.getValue()[0];
+            documento.refuerzos[i] = entrada.getValue()[1];
+            instrumentosPorTermino.get(entrada.getKey()).add(id);
+            i++;
+        }
+        documentos.put(id, documento);
+    }
+
+    private void contar(TreeMap<Integer, float[]> conteo, String termino, float refuerzo) {
+        int id = terminos.computeIfAbsent(termino, t -> {
+            instrumentosPorTermino.add(new HashSet<>());
+            return instrumentosPorTermino.size() - 1;
+        });
+        float[] valores = conteo.computeIfAbsent(id, t -> new float[] { 0, 0 });
+        valores[0]++;
+        // Si aparece en el nombre y en la descripción vale el refuerzo mayor
+        valores[1] = Math.max(valores[1], refuerzo);
+    }
+
+    private void quitarDocumento(long id) {
+        Documento documento = documentos.remove(id);
+        if (documento != null) {
+            for (int termino : documento.terminos) {
+                instrumentosPorTermino.get(termino).remove(id);
+            }
+        }
+    }
+
+    /**
+     * Términos de un instrumento ordenados por id, con su frecuencia, su refuerzo y sus pesos
+     */
+    private static final class Documento {
+        private final int[] terminos;
+        private final float[] frecuencias;
+        private final float[] refuerzos;
+        private float[] pesos;
+
+        Documento(int tamanio) {
+            terminos = new int[tamanio];
+            frecuencias = new float[tamanio];
+            refuerzos = new float[tamanio];
+        }
+    }
+
+    /**
+     * Vecinos de un instrumento, del más al menos parecido
+     */
+    private record Vecinos(long[] ids, float[] puntajes) {
+
+        /**
+         * Copia con un instrumento más (o con su puntaje nuevo), si entra entre los VECINOS
+         */
+        Vecinos con(long id, float puntaje) {
+            int tamanio = ids.length;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    tamanio--;
+                    break;
+                }
+            }
+            if (tamanio >= VECINOS && puntaje <= puntajes[ids.length - 1]) {
+                return this;
+            }
+
+            long[] nuevosIds = new long[Math.min(tamanio + 1, VECINOS)];
+            float[] nuevosPuntajes = new float[nuevosIds.length];
+            int n = 0;
+            boolean agregado = false;
+            for (int i = 0; i < ids.length && n < nuevosIds.length; i++) {
+                if (ids[i] == id) {
+                    continue;
+                }
+                if (!agregado && puntaje > puntajes[i]) {
+                    nuevosIds[n] = id;
+                    nuevosPuntajes[n++] = puntaje;
+                    agregado = true;
+                    if (n == nuevosIds.length) {
+                        break;
+                    }
+                }
+                nuevosIds[n] = ids[i];
+                nuevosPuntajes[n++] = puntajes[i];
+            }
+            if (!agregado && n < nuevosIds.length) {
+                nuevosIds[n] = id;
+                nuevosPuntajes[n] = puntaje;
+            }
+            return new Vecinos(nuevosIds, nuevosPuntajes);
+        }
+    }
+}
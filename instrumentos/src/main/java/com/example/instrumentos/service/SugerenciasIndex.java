@@ -0,0 +1,347 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.model.EstadoPedido;
+import com.example.instrumentos.repository.DetallePedidoRepository;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import com.example.instrumentos.util.TextoNormalizador;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice en memoria para autocompletar nombres y marcas de instrumentos. Cada sugerencia
+ * (un nombre o una marca distinta, sin importar mayúsculas ni tildes) se registra en un
+ * mapa ordenado bajo cada comienzo de palabra, así "strato" encuentra "Fender Stratocaster":
+ * un prefijo es un rango contiguo de claves. Se ordenan por popularidad, que son las
+ * unidades vendidas (pedidos pagados, enviados o entregados) de sus instrumentos.
+ * El resultado de los prefijos muy frecuentes (los que abarcan muchas claves) se guarda
+ * hasta el próximo cambio, así la primera letra tampoco recorre todo el catálogo.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SugerenciasIndex {
+
+    // Separa el texto de la clave del id de la sugerencia; ordena antes que cualquier letra
+    private static final char SEPARADOR = '\u0000';
+    private static final Set<EstadoPedido> ESTADOS_VENDIDOS =
+            EnumSet.of(EstadoPedido.PAGADO, EstadoPedido.ENVIADO, EstadoPedido.ENTREGADO);
+    // Prefijos que abarcan muchas sugerencias: su resultado se guarda hasta el próximo cambio
+    private static final int CLAVES_PARA_GUARDAR = 1000;
+    private static final int LIMITE_GUARDADO = 20;
+
+    private static final Comparator<Sugerencia> POR_RELEVANCIA = Comparator
+            .comparingLong((Sugerencia s) -> s.popularidad)
+            .thenComparingInt(s -> s.instrumentos)
+            .thenComparing(s -> s.texto, Comparator.reverseOrder());
+
+    private final InstrumentoRepository instrumentoRepository;
+    private final DetallePedidoRepository detallePedidoRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Sugerencia> claves = new TreeMap<>();
+    private final Map<String, Sugerencia> sugerencias = new HashMap<>();
+    private final Map<Long, Registro> registros = new HashMap<>();
+    private final Map<String, List<Resultado>> frecuentes = new ConcurrentHashMap<>();
+    private int siguienteId;
+
+    public enum Tipo {
+        NOMBRE,
+        MARCA
+    }
+
+    /**
+     * Cargar nombres, marcas y unidades vendidas al iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        long inicio = System.currentTimeMillis();
+        List<Object[]> textos = instrumentoRepository.findTextosSugerencias();
+        Map<Long, Long> vendidos = new HashMap<>();
+        for (Object[] fila : detallePedidoRepository.sumarCantidadesVendidas(ESTADOS_VENDIDOS)) {
+            vendidos.put((Long) fila[0], ((Number) fila[1]).longValue());
+        }
+
+        lock.writeLock().lock();
+        try {
+            claves.clear();
+            sugerencias.clear();
+            registros.clear();
+            frecuentes.clear();
+            for (Object[] fila : textos) {
+                Long id = (Long) fila[0];
+                indexarSinBloqueo(id, (String) fila[1], (String) fila[2], vendidos.getOrDefault(id, 0L));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("⌨️ Índice de sugerencias cargado: {} sugerencia(s), {} clave(s) en {} ms",
+                sugerencias.size(), claves.size(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Mantener nombres y marcas al día con cada alta, modificación o baja (después del commit)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        switch (event.tipo()) {
+            case ELIMINADO -> eliminar(event.idInstrumento());
+            case CREADO, ACTUALIZADO -> instrumentoRepository.findById(event.idInstrumento())
+                    .ifPresentOrElse(
+                            i -> indexar(i.getIdInstrumento(), i.getDenominacion(), i.getMarca()),
+                            () -> eliminar(event.idInstrumento()));
+            default -> {
+                // Precio y stock no cambian los textos sugeridos
+            }
+        }
+    }
+
+    public void indexar(long idInstrumento, String denominacion, String marca) {
+        lock.writeLock().lock();
+        try {
+            Registro anterior = registros.get(idInstrumento);
+            indexarSinBloqueo(idInstrumento, denominacion, marca, anterior != null ? anterior.vendidos : 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(long idInstrumento) {
+        lock.writeLock().lock();
+        try {
+            Registro registro = registros.remove(idInstrumento);
+            if (registro != null) {
+                quitar(registro);
+                frecuentes.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sumar (o restar, si la cantidad es negativa) unidades vendidas a la popularidad de un
+     * instrumento. Dentro de una transacción se aplica recién al confirmarse.
+     */
+    public void registrarVenta(long idInstrumento, int cantidad) {
+        Runnable accion = () -> {
+            lock.writeLock().lock();
+            try {
+                Registro registro = registros.get(idInstrumento);
+                if (registro == null) {
+                    return;
+                }
+                registro.vendidos += cantidad;
+                for (Sugerencia sugerencia : registro.sugerencias) {
+                    sugerencia.popularidad += cantidad;
+                }
+                frecuentes.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return sugerencias.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Las sugerencias más populares con alguna palabra que empiece con el prefijo dado
+     */
+    public List<Resultado> sugerir(String prefijo, int limite) {
+        String normalizado = normalizar(prefijo);
+        if (normalizado.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Resultado> guardados = frecuentes.get(normalizado);
+            if (guardados != null && limite <= LIMITE_GUARDADO) {
+                return guardados.subList(0, Math.min(limite, guardados.size()));
+            }
+
+            Collection<Sugerencia> candidatas = claves.subMap(normalizado, normalizado + Character.MAX_VALUE).values();
+            Set<Sugerencia> vistas = new HashSet<>();
+            List<Resultado> resultados = mejores(candidatas, Math.max(limite, LIMITE_GUARDADO), vistas);
+            if (vistas.size() >= CLAVES_PARA_GUARDAR && limite <= LIMITE_GUARDADO) {
+                // Se guarda con el bloqueo de lectura tomado: ningún cambio puede invalidarlo en el medio
+                frecuentes.put(normalizado, resultados);
+            }
+            return resultados.subList(0, Math.min(limite, resultados.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top-N con un heap de mínimos de tamaño acotado; una sugerencia puede aparecer
+     * bajo varias claves si el prefijo coincide con más de una de sus palabras
+     */
+    private static List<Resultado> mejores(Collection<Sugerencia> candidatas, int limite, Set<Sugerencia> vistas) {
+        PriorityQueue<Sugerencia> mejores = new PriorityQueue<>(limite, POR_RELEVANCIA);
+        for (Sugerencia sugerencia : candidatas) {
+            if (!vistas.add(sugerencia)) {
+                continue;
+            }
+            if (mejores.size() < limite) {
+                mejores.add(sugerencia);
+            } else if (POR_RELEVANCIA.compare(sugerencia, mejores.peek()) > 0) {
+                mejores.poll();
+                mejores.add(sugerencia);
+            }
+        }
+
+        List<Resultado> resultados = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            Sugerencia s = mejores.poll();
+            resultados.add(new Resultado(s.texto, s.tipo, s.instrumentos, s.popularidad));
+        }
+        return List.copyOf(resultados.reversed());
+    }
+
+    private void indexarSinBloqueo(long idInstrumento, String denominacion, String marca, long vendidos) {
+        Registro anterior = registros.remove(idInstrumento);
+        if (anterior != null) {
+            quitar(anterior);
+        }
+
+        Registro registro = new Registro(vendidos);
+        agregar(registro, Tipo.NOMBRE, denominacion);
+        agregar(registro, Tipo.MARCA, marca);
+        registros.put(idInstrumento, registro);
+        frecuentes.clear();
+    }
+
+    private void agregar(Registro registro, Tipo tipo, String texto) {
+        String normalizado = normalizar(texto);
+        if (normalizado.isEmpty()) {
+            return;
+        }
+        Sugerencia sugerencia = sugerencias.computeIfAbsent(tipo + ":" + normalizado, k -> {
+            Sugerencia nueva = new Sugerencia(siguienteId++, tipo, texto.trim(), normalizado);
+            for (String clave : nueva.claves()) {
+                claves.put(clave, nueva);
+            }
+            return nueva;
+        });
+        sugerencia.instrumentos++;
+        sugerencia.popularidad += registro.vendidos;
+        registro.sugerencias.add(sugerencia);
+    }
+
+    private void quitar(Registro registro) {
+        for (Sugerencia sugerencia : registro.sugerencias) {
+            sugerencia.popularidad -= registro.vendidos;
+            if (--sugerencia.instrumentos == 0) {
+                sugerencias.remove(sugerencia.tipo + ":" + sugerencia.normalizado);
+                for (String clave : sugerencia.claves()) {
+                    claves.remove(clave);
+                }
+            }
+        }
+    }
+
+    /**
+     * Minúsculas, sin tildes y con las palabras separadas por un solo espacio
+     */
+    private static String normalizar(String texto) {
+        String normalizado = TextoNormalizador.normalizar(texto);
+        StringBuilder sb = new StringBuilder(normalizado.length());
+        for (int i = 0; i < normalizado.length(); i++) {
+            char c = normalizado.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else if (!sb.isEmpty() && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        int largo = sb.length();
+        return largo > 0 && sb.charAt(largo - 1) == ' ' ? sb.substring(0, largo - 1) : sb.toString();
+    }
+
+    /**
+     * Un nombre o una marca distinta, con la cantidad de instrumentos que la usan
+     */
+    private static final class Sugerencia {
+        private final int id;
+        private final Tipo tipo;
+        private final String texto;
+        private final String normalizado;
+        private int instrumentos;
+        private long popularidad;
+
+        Sugerencia(int id, Tipo tipo, String texto, String normalizado) {
+            this.id = id;
+            this.tipo = tipo;
+            this.texto = texto;
+            this.normalizado = normalizado;
+        }
+
+        /**
+         * Una clave por cada comienzo de palabra: "fender stratocaster" → "fender ...", "stratocaster"
+         */
+        List<String> claves() {
+            List<String> claves = new ArrayList<>(2);
+            for (int i = 0; i < normalizado.length(); i++) {
+                if (i == 0 || normalizado.charAt(i - 1) == ' ') {
+                    claves.add(normalizado.substring(i) + SEPARADOR + id);
+                }
+            }
+            return claves;
+        }
+    }
+
+    /**
+     * Sugerencias de un instrumento y sus unidades vendidas, para poder quitarlas al cambiar
+     */
+    private static final class Registro {
+        private final List<Sugerencia> sugerencias = new ArrayList<>(2);
+        private long vendidos;
+
+        Registro(long vendidos) {
+            this.vendidos = vendidos;
+        }
+    }
+
+    public record Resultado(String texto, Tipo tipo, int instrumentos, long popularidad) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.CategoriaModificadaEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentosModificadosEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión de los recursos públicos del catálogo para las validaciones condicionales
+ * (ETag / If-None-Match y Last-Modified / If-Modified-Since). Se incrementa después
+ * del commit de cada escritura de instrumentos o categorías, así responder un 304
+ * solo requiere comparar la versión, sin cargar entidades.
+ */
+@Component
+public class VersionCatalogo {
+
+    public enum Recurso {
+        INSTRUMENTOS,
+        CATEGORIAS
+    }
+
+    // Distingue los ETags entre reinicios, porque los contadores vuelven a cero
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong versionInstrumentos = new AtomicLong();
+    private final AtomicLong versionCategorias = new AtomicLong();
+    private volatile long modificacionInstrumentos = System.currentTimeMillis();
+    private volatile long modificacionCategorias = modificacionInstrumentos;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentoModificado(InstrumentoModificadoEvent event) {
+        versionInstrumentos.incrementAndGet();
+        modificacionInstrumentos = System.currentTimeMillis();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstrumentosModificados(InstrumentosModificadosEvent event) {
+        versionInstrumentos.incrementAndGet();
+        modificacionInstrumentos = System.currentTimeMillis();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriaModificada(CategoriaModificadaEvent event) {
+        versionCategorias.incrementAndGet();
+        modificacionCategorias = System.currentTimeMillis();
+    }
+
+    /**
+     * ETag fuerte del recurso. La variante distingue representaciones distintas de la
+     * misma URL (por ejemplo el cuerpo comprimido con gzip).
+     * Los instrumentos incluyen el nombre de su categoría, por eso dependen de ambas versiones.
+     */
+    public String etag(Recurso recurso, String variante) {
+        return etag(version(recurso), variante);
+    }
+
+    /**
+     * ETag a partir de una versión ya leída, por ejemplo la de un cuerpo guardado en caché
+     */
+    public static String etag(String version, String variante) {
+        return "\"" + version + (variante != null ? "-" + variante : "") + "\"";
+    }
+
+    /**
+     * Versión actual del recurso; la caché de respuestas guarda cada cuerpo con esta versión
+     */
+    public String version(Recurso recurso) {
+        return epoca + "-" + switch (recurso) {
+            case INSTRUMENTOS -> "i" + versionInstrumentos.get() + "." + versionCategorias.get();
+            case CATEGORIAS -> "c" + versionCategorias.get();
+        };
+    }
+
+    public long ultimaModificacion(Recurso recurso) {
+        return switch (recurso) {
+            case INSTRUMENTOS -> Math.max(modificacionInstrumentos, modificacionCategorias);
+            case CATEGORIAS -> modificacionCategorias;
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.instrumentos.util;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Campos pedidos por el cliente con el parámetro fields ("id,fecha,detalles.cantidad").
+ * Los campos anidados se separan con punto; nombrar un objeto sin subcampos lo pide
+ * completo. Sin parámetro se piden todos.
+ */
+public final class CamposSolicitados {
+
+    public static final CamposSolicitados TODOS = new CamposSolicitados(null);
+
+    // null = todos los campos de este nivel
+    private final Map<String, CamposSolicitados> hijos;
+
+    private CamposSolicitados(Map<String, CamposSolicitados> hijos) {
+        this.hijos = hijos;
+    }
+
+    public static CamposSolicitados parsear(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return TODOS;
+        }
+        CamposSolicitados raiz = new CamposSolicitados(new LinkedHashMap<>());
+        for (String ruta : fields.split(",")) {
+            String limpia = ruta.trim();
+            if (!limpia.isEmpty()) {
+                raiz.agregar(limpia.split("\\."), 0);
+            }
+        }
+        if (raiz.hijos.isEmpty()) {
+            throw new IllegalArgumentException("El parámetro fields no contiene campos");
+        }
+        return raiz;
+    }
+
+    private void agregar(String[] partes, int posicion) {
+        String nombre = partes[posicion].trim();
+        if (nombre.isEmpty()) {
+            throw new IllegalArgumentException("Campo inválido en fields: " + String.join(".", partes));
+        }
+        if (posicion == partes.length - 1) {
+            hijos.put(nombre, TODOS);
+            return;
+        }
+        CamposSolicitados hijo = hijos.get(nombre);
+        if (hijo == TODOS) {
+            return;
+        }
+        if (hijo == null) {
+            hijo = new CamposSolicitados(new LinkedHashMap<>());
+            hijos.put(nombre, hijo);
+        }
+        hijo.agregar(partes, posicion + 1);
+    }
+
+    public boolean sonTodos() {
+        return hijos == null;
+    }
+
+    public boolean incluye(String campo) {
+        return hijos == null || hijos.containsKey(campo);
+    }
+
+    /**
+     * Si el campo se nombró en fields (no alcanza con que se pidan todos)
+     */
+    public boolean nombra(String campo) {
+        return hijos != null && hijos.containsKey(campo);
+    }
+
+    /**
+     * Subcampos pedidos de un objeto anidado (todos si se pidió el objeto completo)
+     */
+    public CamposSolicitados de(String campo) {
+        if (hijos == null) {
+            return TODOS;
+        }
+        CamposSolicitados hijo = hijos.get(campo);
+        return hijo != null ? hijo : TODOS;
+    }
+
+    /**
+     * Rechazar los campos que no existen en este nivel
+     */
+    public CamposSolicitados validar(Collection<String> permitidos) {
+        if (hijos != null) {
+            for (String campo : hijos.keySet()) {
+                if (!permitidos.contains(campo)) {
+                    throw new IllegalArgumentException("Campo desconocido: " + campo +
+                            ". Campos válidos: " + String.join(", ", permitidos));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Forma canónica, por ejemplo para distinguir variantes en el ETag
+     */
+    @Override
+    public String toString() {
+        if (hijos == null) {
+            return "*";
+        }
+        return hijos.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getValue() == TODOS ? e.getKey() : e.getKey() + "(" + e.getValue() + ")")
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.instrumentos.util;
+
+import com.example.instrumentos.model.Instrumento;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Cursor opaco para la paginación por clave (keyset) del catálogo.
+ * Guarda el criterio de orden, el valor de la columna ordenada y el id de la última
+ * fila entregada; la página siguiente arranca estrictamente después de ese par.
+ */
+public record CursorCatalogo(Orden orden, String valor, Long idInstrumento) {
+
+    public enum Orden {
+        NOMBRE,
+        PRECIO,
+        STOCK;
+
+        /**
+         * Interpretar el parámetro sort (acepta los nombres en castellano y en inglés)
+         */
+        public static Orden desdeParametro(String sort) {
+            if (sort == null || sort.isBlank()) {
+                return NOMBRE;
+            }
+            return switch (sort.trim().toLowerCase()) {
+                case "nombre", "name", "denominacion" -> NOMBRE;
+                case "precio", "price" -> PRECIO;
+                case "stock" -> STOCK;
+                default -> throw new IllegalArgumentException("Orden inválido: " + sort);
+            };
+        }
+    }
+
+    /**
+     * Armar el cursor que apunta a la última fila de una página
+     */
+    public static CursorCatalogo despuesDe(Instrumento instrumento, Orden orden) {
+        String valor = switch (orden) {
+            case NOMBRE -> instrumento.getDenominacion();
+            // Sin precio cuenta como 0, igual que el ORDER BY de la consulta
+            case PRECIO -> String.valueOf(Objects.requireNonNullElse(instrumento.getPrecioActual(), 0.0));
+            case STOCK -> String.valueOf(instrumento.getStock());
+        };
+        return new CursorCatalogo(orden, valor, instrumento.getIdInstrumento());
+    }
+
+    public String codificar() {
+        String plano = orden.name() + ":" + idInstrumento + ":" + valor;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodificar el parámetro after; el cursor debe haber sido generado con el mismo orden
+     */
+    public static CursorCatalogo decodificar(String after, Orden ordenEsperado) {
+        CursorCatalogo cursor;
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+            String[] partes = plano.split(":", 3);
+            cursor = new CursorCatalogo(Orden.valueOf(partes[0]), partes[2], Long.parseLong(partes[1]));
+            // Validar que el valor sea del tipo que espera la consulta
+            if (cursor.orden() == Orden.PRECIO) {
+                cursor.valorDecimal();
+            } else if (cursor.orden() == Orden.STOCK) {
+                cursor.valorEntero();
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+
+        if (cursor.orden() != ordenEsperado) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado: " + ordenEsperado);
+        }
+        return cursor;
+    }
+
+    public Double valorDecimal() {
+        return Double.valueOf(valor);
+    }
+
+    public Integer valorEntero() {
+        return Integer.valueOf(valor);
+    }
+}
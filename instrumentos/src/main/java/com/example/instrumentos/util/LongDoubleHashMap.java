@@ -0,0 +1,142 @@
+package com.example.instrumentos.util;
+
+import java.util.Arrays;
+
+/**
+ * Mapa long → double con direccionamiento abierto (sondeo lineal).
+ * Evita el boxing de Long/Double y la creación de un nodo por entrada,
+ * por lo que ocupa ~16 bytes por elemento en lugar de ~80 con HashMap.
+ *
+ * No es thread-safe: la sincronización queda a cargo de quien lo use.
+ */
+public class LongDoubleHashMap {
+
+    private static final long LIBRE = Long.MIN_VALUE;
+    private static final float FACTOR_CARGA = 0.6f;
+
+    private long[] claves;
+    private double[] valores;
+    private int tamanio;
+    private int umbral;
+
+    public LongDoubleHashMap() {
+        this(16);
+    }
+
+    public LongDoubleHashMap(int capacidadEsperada) {
+        int capacidad = Integer.highestOneBit(Math.max(4, (int) (capacidadEsperada / FACTOR_CARGA)) - 1) << 1;
+        inicializar(capacidad);
+    }
+
+    public int size() {
+        return tamanio;
+    }
+
+    public boolean isEmpty() {
+        return tamanio == 0;
+    }
+
+    public boolean containsKey(long clave) {
+        return indiceDe(clave) >= 0;
+    }
+
+    /**
+     * Devuelve el valor asociado a la clave o {@code valorPorDefecto} si no existe
+     */
+    public double get(long clave, double valorPorDefecto) {
+        int indice = indiceDe(clave);
+        return indice >= 0 ? valores[indice] : valorPorDefecto;
+    }
+
+    public void put(long clave, double valor) {
+        validarClave(clave);
+        if (tamanio >= umbral) {
+            redimensionar(claves.length << 1);
+        }
+        int mascara = claves.length - 1;
+        int i = mezclar(clave) & mascara;
+        while (claves[i] != LIBRE) {
+            if (claves[i] == clave) {
+                valores[i] = valor;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        tamanio++;
+    }
+
+    public boolean remove(long clave) {
+        int indice = indiceDe(clave);
+        if (indice < 0) {
+            return false;
+        }
+        // Borrado hacia atrás: reubica las entradas del mismo grupo para no dejar huecos
+        int mascara = claves.length - 1;
+        int hueco = indice;
+        int i = (hueco + 1) & mascara;
+        while (claves[i] != LIBRE) {
+            int ideal = mezclar(claves[i]) & mascara;
+            if (((i - ideal) & mascara) >= ((i - hueco) & mascara)) {
+                claves[hueco] = claves[i];
+                valores[hueco] = valores[i];
+                hueco = i;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[hueco] = LIBRE;
+        tamanio--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(claves, LIBRE);
+        tamanio = 0;
+    }
+
+    private int indiceDe(long clave) {
+        if (clave == LIBRE) {
+            return -1;
+        }
+        int mascara = claves.length - 1;
+        int i = mezclar(clave) & mascara;
+        while (claves[i] != LIBRE) {
+            if (claves[i] == clave) {
+                return i;
+            }
+            i = (i + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private void redimensionar(int nuevaCapacidad) {
+        long[] clavesAnteriores = claves;
+        double[] valoresAnteriores = valores;
+        inicializar(nuevaCapacidad);
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            if (clavesAnteriores[i] != LIBRE) {
+                put(clavesAnteriores[i], valoresAnteriores[i]);
+            }
+        }
+    }
+
+    private void inicializar(int capacidad) {
+        claves = new long[capacidad];
+        valores = new double[capacidad];
+        Arrays.fill(claves, LIBRE);
+        tamanio = 0;
+        umbral = (int) (capacidad * FACTOR_CARGA);
+    }
+
+    private static int mezclar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void validarClave(long clave) {
+        if (clave == LIBRE) {
+            throw new IllegalArgumentException("Clave reservada: " + clave);
+        }
+    }
+}
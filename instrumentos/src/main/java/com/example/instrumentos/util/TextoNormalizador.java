@@ -0,0 +1,76 @@
+package com.example.instrumentos.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalización de texto en castellano para búsquedas: minúsculas, sin tildes
+ * ("batería" → "bateria", "percusión" → "percusion"), sin palabras vacías y con
+ * un recorte simple de plurales ("guitarras" → "guitarra", "tambores" → "tambor").
+ */
+public final class TextoNormalizador {
+
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los",
+            "o", "para", "por", "que", "se", "sin", "su", "sus", "un", "una", "uno", "y");
+
+    private TextoNormalizador() {
+    }
+
+    /**
+     * Pasar a minúsculas y quitar tildes y diéresis, conservando el resto del texto
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Separar en términos normalizados, sin palabras vacías y reducidos a singular
+     */
+    public static List<String> terminos(String texto) {
+        List<String> terminos = new ArrayList<>();
+        String normalizado = normalizar(texto);
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean alfanumerico = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (alfanumerico && inicio < 0) {
+                inicio = i;
+            } else if (!alfanumerico && inicio >= 0) {
+                String palabra = normalizado.substring(inicio, i);
+                if (!PALABRAS_VACIAS.contains(palabra)) {
+                    terminos.add(singular(palabra));
+                }
+                inicio = -1;
+            }
+        }
+        return terminos;
+    }
+
+    /**
+     * Recorte de plural: "-es" tras r, l, n, d o z ("tambores", "acordeones") y "-s" en el resto
+     */
+    static String singular(String palabra) {
+        int largo = palabra.length();
+        if (largo > 4 && palabra.endsWith("es") && "rlndz".indexOf(palabra.charAt(largo - 3)) >= 0) {
+            return palabra.substring(0, largo - 2);
+        }
+        if (largo > 3 && palabra.endsWith("s") && !palabra.endsWith("ss")) {
+            return palabra.substring(0, largo - 1);
+        }
+        return palabra;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.instrumentos.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BusquedaIndexTest {
+
+    private BusquedaIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BusquedaIndex(null);
+        index.indexar(1, "Guitarra Criolla", "Gracia", "Guitarra clásica de estudio con cuerdas de nylon");
+        index.indexar(2, "Batería Acústica", "Yamaha", "Set de percusión completo con platillos");
+        index.indexar(3, "Piano Digital", "Yamaha", "Teclado de 88 teclas con guitarra y batería sampleadas");
+        index.indexar(4, "Pandereta", "Remo", "Instrumento de percusión con sonajas");
+    }
+
+    @Test
+    void ignoraTildesYPlurales() {
+        assertEquals(List.of(2L, 3L), ids(index.buscar("bateria", 10)));
+        assertEquals(List.of(1L), ids(index.buscar("GUITARRAS criollas", 1)));
+        assertTrue(ids(index.buscar("percusion", 10)).containsAll(List.of(2L, 4L)));
+    }
+
+    @Test
+    void laDenominacionPesaMasQueLaDescripcion() {
+        // "guitarra" aparece en el nombre del 1 y solo en la descripción del 3
+        assertEquals(List.of(1L, 3L), ids(index.buscar("guitarra", 10)));
+    }
+
+    @Test
+    void actualizaYEliminaIncrementalmente() {
+        index.indexar(4, "Pandereta Fender", "Fender", null);
+        assertEquals(List.of(4L), ids(index.buscar("fender", 10)));
+        assertTrue(index.buscar("sonajas", 10).isEmpty());
+
+        index.eliminar(4);
+        assertTrue(index.buscar("fender", 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void devuelveLosMejoresHastaElLimiteOrdenadosPorPuntaje() {
+        String[] palabras = "guitarra bajo bateria piano teclado electrica acustica madera nylon estudio".split(" ");
+        String[] marcas = { "Fender", "Gibson", "Yamaha", "Casio" };
+        Random random = new Random(42);
+        BusquedaIndex grande = new BusquedaIndex(null);
+        for (long id = 1; id <= 500; id++) {
+            grande.indexar(id, frase(palabras, random, 3), marcas[random.nextInt(marcas.length)],
+                    frase(palabras, random, 10));
+        }
+
+        List<BusquedaIndex.Resultado> resultados = grande.buscar("guitarra fender", 20);
+        assertEquals(20, resultados.size());
+        for (int i = 1; i < resultados.size(); i++) {
+            assertTrue(resultados.get(i - 1).puntaje() >= resultados.get(i).puntaje());
+        }
+    }
+
+    private static String frase(String[] palabras, Random random, int cantidad) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cantidad; i++) {
+            sb.append(palabras[random.nextInt(palabras.length)]).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static List<Long> ids(List<BusquedaIndex.Resultado> resultados) {
+        return resultados.stream().map(BusquedaIndex.Resultado::idInstrumento).toList();
+    }
+}
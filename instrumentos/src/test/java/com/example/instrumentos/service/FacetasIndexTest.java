@@ -0,0 +1,117 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
+import com.example.instrumentos.model.CategoriaInstrumento;
+import com.example.instrumentos.model.Instrumento;
+import com.example.instrumentos.repository.CategoriaInstrumentoRepository;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FacetasIndexTest {
+
+    private final CategoriaInstrumento cuerdas = new CategoriaInstrumento(1L, "Cuerdas", null, null);
+    private final CategoriaInstrumento percusion = new CategoriaInstrumento(2L, "Percusión", null, null);
+    private final Map<Long, Instrumento> instrumentos = new LinkedHashMap<>();
+    private InstrumentoRepository repository;
+    private FacetasIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(InstrumentoRepository.class);
+        when(repository.findAll()).thenAnswer(invocation -> List.copyOf(instrumentos.values()));
+        when(repository.findAllByIdConCategoria(anyCollection())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return instrumentos.values().stream().filter(i -> ids.contains(i.getIdInstrumento())).toList();
+        });
+        PrecioActualIndex precios = mock(PrecioActualIndex.class);
+        when(precios.obtener(any())).thenAnswer(invocation ->
+                instrumentos.get((Long) invocation.getArgument(0)).getPrecioActual());
+        index = new FacetasIndex(repository, mock(CategoriaInstrumentoRepository.class), precios,
+                new double[] { 500, 1000 });
+
+        agregar(1L, "Fender", 5, 900.0, cuerdas);
+        agregar(2L, "Yamaha", 0, 400.0, percusion);
+        agregar(3L, "Gibson", 2, 1500.0, cuerdas);
+        index.cargar();
+    }
+
+    @Test
+    void modificarConservaElSlotYElOrdenPorId() {
+        agregar(1L, "Yamaha", 5, 950.0, percusion);
+        index.onInstrumentoModificado(new InstrumentoModificadoEvent(1L, TipoCambio.ACTUALIZADO));
+        agregar(1L, "Ibanez", 5, 950.0, cuerdas);
+        index.onInstrumentoModificado(new InstrumentoModificadoEvent(1L, TipoCambio.ACTUALIZADO));
+
+        assertEquals(3, index.slotsAsignados());
+        assertEquals(List.of(1L, 2L, 3L), filtrar(null, null).ids());
+        assertEquals(List.of(1L, 3L), filtrar(Set.of(1L), null).ids());
+        assertEquals(List.of(1L), filtrar(null, Set.of("ibanez")).ids());
+        assertEquals(List.of(), filtrar(null, Set.of("fender")).ids());
+        assertEquals(2, index.resumenCategorias().get(1L).instrumentos());
+        assertEquals(1, index.resumenCategorias().get(2L).instrumentos());
+    }
+
+    @Test
+    void elStockDelEventoSeAplicaSinIrALaBase() {
+        index.onInstrumentoModificado(new InstrumentoModificadoEvent(1L, TipoCambio.STOCK, 0));
+        index.onInstrumentoModificado(new InstrumentoModificadoEvent(2L, TipoCambio.STOCK, 4));
+
+        verify(repository, never()).findAllByIdConCategoria(anyCollection());
+        assertEquals(List.of(2L, 3L), index.filtrar(null, null, null, null, true, 0, 10).ids());
+        assertEquals(1, index.resumenCategorias().get(1L).conStock());
+        assertEquals(1, index.resumenCategorias().get(2L).conStock());
+    }
+
+    @Test
+    void filtraPorPrecioConRangosEnterosYExtremos() {
+        agregar(4L, "Fender", 1, 500.0, cuerdas);
+        agregar(5L, "Fender", 1, 1000.0, cuerdas);
+        index.onInstrumentoModificado(new InstrumentoModificadoEvent(4L, TipoCambio.CREADO));
+        index.onInstrumentoModificado(new InstrumentoModificadoEvent(5L, TipoCambio.CREADO));
+
+        assertEquals(List.of(1L, 4L, 5L), filtrarPrecio(500.0, 1000.0));
+        assertEquals(List.of(1L, 2L, 4L), filtrarPrecio(null, 999.0));
+        assertEquals(List.of(3L, 5L), filtrarPrecio(1000.0, null));
+        assertEquals(List.of(1L), filtrarPrecio(600.0, 950.0));
+        assertEquals(List.of(), filtrarPrecio(950.0, 600.0));
+
+        instrumentos.get(3L).setPrecioActual(700.0);
+        index.onInstrumentoModificado(new InstrumentoModificadoEvent(3L, TipoCambio.PRECIO));
+        assertEquals(List.of(1L, 3L, 4L), filtrarPrecio(500.0, 999.0));
+    }
+
+    private List<Long> filtrarPrecio(Double precioMin, Double precioMax) {
+        return index.filtrar(null, null, precioMin, precioMax, false, 0, 10).ids();
+    }
+
+    private FacetasIndex.ResultadoFacetas filtrar(Set<Long> categorias, Set<String> marcas) {
+        return index.filtrar(categorias, marcas, null, null, false, 0, 10);
+    }
+
+    private void agregar(Long id, String marca, int stock, double precio, CategoriaInstrumento categoria) {
+        Instrumento instrumento = new Instrumento();
+        instrumento.setIdInstrumento(id);
+        instrumento.setDenominacion("Instrumento " + id);
+        instrumento.setMarca(marca);
+        instrumento.setStock(stock);
+        instrumento.setPrecioActual(precio);
+        instrumento.setCategoriaInstrumento(categoria);
+        instrumentos.put(id, instrumento);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.service.HistorialRetencionJob.Granularidad;
+import com.example.instrumentos.service.HistorialRetencionJob.Registro;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistorialRetencionJobTest {
+
+    private static final ZoneId ZONA = ZoneId.of("America/Argentina/Mendoza");
+
+    @Test
+    void conservaElUltimoDeCadaDia() {
+        Registro manana = registro(1, "2024-03-04T09:00", 100);
+        Registro tarde = registro(2, "2024-03-04T18:00", 110);
+        Registro otroDia = registro(3, "2024-03-05T10:00", 120);
+
+        assertEquals(List.of(tarde, otroDia),
+                HistorialRetencionJob.conservados(List.of(manana, tarde, otroDia), Granularidad.DIA, ZONA));
+    }
+
+    @Test
+    void agrupaPorSemanaDesdeElLunes() {
+        Registro lunes = registro(1, "2024-03-04T09:00", 100);
+        Registro domingo = registro(2, "2024-03-10T22:00", 110);
+        Registro lunesSiguiente = registro(3, "2024-03-11T08:00", 120);
+
+        assertEquals(List.of(domingo, lunesSiguiente),
+                HistorialRetencionJob.conservados(List.of(lunes, domingo, lunesSiguiente), Granularidad.SEMANA, ZONA));
+    }
+
+    @Test
+    void descartaLosQueRepitenElPrecioAnteriorYEsIdempotente() {
+        Registro primero = registro(1, "2024-03-04T09:00", 100);
+        Registro repetido = registro(2, "2024-03-05T09:00", 100);
+        Registro cambio = registro(3, "2024-03-06T09:00", 90);
+        Registro vuelve = registro(4, "2024-03-07T09:00", 100);
+
+        List<Registro> conservados = HistorialRetencionJob.conservados(
+                List.of(primero, repetido, cambio, vuelve), Granularidad.DIA, ZONA);
+        assertEquals(List.of(primero, cambio, vuelve), conservados);
+        assertEquals(conservados, HistorialRetencionJob.conservados(conservados, Granularidad.DIA, ZONA));
+    }
+
+    private static Registro registro(long id, String fecha, double precio) {
+        long instante = LocalDateTime.parse(fecha).atZone(ZONA).toInstant().toEpochMilli();
+        return new Registro(id, 1, instante, precio);
+    }
+}
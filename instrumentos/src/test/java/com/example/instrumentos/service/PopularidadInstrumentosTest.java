@@ -0,0 +1,46 @@
+package com.example.instrumentos.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PopularidadInstrumentosTest {
+
+    @Test
+    void noPierdeVistasConcurrentes() throws InterruptedException {
+        PopularidadInstrumentos popularidad = new PopularidadInstrumentos(null, null, null);
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        for (int h = 0; h < 8; h++) {
+            hilos.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    popularidad.registrarVista(1);
+                }
+            });
+        }
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(80_000, popularidad.vistas(1));
+    }
+
+    @Test
+    void ordenaPorVistasYLineasDePedidoPonderadas() {
+        PopularidadInstrumentos popularidad = new PopularidadInstrumentos(null, null, null);
+        for (int i = 0; i < 5; i++) {
+            popularidad.registrarVista(1);
+        }
+        popularidad.registrarVista(2);
+        popularidad.registrarLineaPedido(2);
+        popularidad.registrarVista(3);
+
+        assertEquals(List.of(2L, 1L, 3L), popularidad.masPopulares(10));
+        assertEquals(List.of(2L, 1L), popularidad.masPopulares(2));
+        assertEquals(1, popularidad.lineasPedido(2));
+    }
+}
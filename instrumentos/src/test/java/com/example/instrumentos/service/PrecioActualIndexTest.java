@@ -0,0 +1,132 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.model.HistorialPrecio;
+import com.example.instrumentos.model.Instrumento;
+import com.example.instrumentos.repository.HistorialPrecioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compara la cantidad de consultas para resolver el precio de un catálogo completo
+ * (como hace GET /instrumentos) con y sin el índice de precios en memoria.
+ */
+@ExtendWith(MockitoExtension.class)
+class PrecioActualIndexTest {
+
+    private static final int CANTIDAD_INSTRUMENTOS = 3000;
+
+    @Mock
+    private HistorialPrecioRepository historialPrecioRepository;
+
+    private PrecioActualIndex precioActualIndex;
+    private InstrumentoService instrumentoService;
+
+    private final List<Instrumento> catalogo = new ArrayList<>();
+    private final List<HistorialPrecio> vigentes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        precioActualIndex = new PrecioActualIndex(historialPrecioRepository);
+        // Solo se usan el índice y el historial para resolver precios
+        instrumentoService = new InstrumentoService(null, null, historialPrecioRepository, null,
+                precioActualIndex, null, null, null, null);
+
+        for (long id = 1; id <= CANTIDAD_INSTRUMENTOS; id++) {
+            Instrumento instrumento = new Instrumento();
+            instrumento.setIdInstrumento(id);
+            instrumento.setDenominacion("Instrumento " + id);
+            catalogo.add(instrumento);
+            vigentes.add(new HistorialPrecio(instrumento, 1000.0 + id));
+        }
+
+        when(historialPrecioRepository.streamLineaDeTiempo()).thenAnswer(invocation -> vigentes.stream()
+                .map(h -> new Object[] { h.getInstrumento().getIdInstrumento(), h.getFechaVigencia(), h.getPrecio() }));
+    }
+
+    @Test
+    void catalogoSinIndiceHaceUnaConsultaPorFilaYConIndiceNinguna() {
+        when(historialPrecioRepository.findPrecioVigenteByInstrumentoId(anyLong()))
+                .thenAnswer(invocation -> {
+                    Long idInstrumento = invocation.getArgument(0);
+                    return Optional.of(vigentes.get((int) (idInstrumento - 1)));
+                });
+
+        // Antes: índice vacío, cada fila consulta el historial (N+1)
+        double totalAntes = resolverPreciosDelCatalogo();
+        int consultasAntes = consultasDePrecio();
+
+        clearInvocations(historialPrecioRepository);
+
+        // Después: índice cargado al inicio con una sola consulta
+        precioActualIndex.cargar();
+        double totalDespues = resolverPreciosDelCatalogo();
+        int consultasDespues = consultasDePrecio();
+
+        assertEquals(CANTIDAD_INSTRUMENTOS, consultasAntes);
+        assertEquals(0, consultasDespues);
+        assertEquals(totalAntes, totalDespues, 0.001);
+        verify(historialPrecioRepository, times(1)).streamLineaDeTiempo();
+    }
+
+    @Test
+    void actualizarYEliminarSinTransaccionSeAplicanDeInmediato() {
+        precioActualIndex.cargar();
+
+        precioActualIndex.actualizar(1L, 55.5);
+        precioActualIndex.eliminar(2L);
+
+        assertEquals(55.5, precioActualIndex.obtener(1L));
+        assertEquals(null, precioActualIndex.obtener(2L));
+        assertEquals(CANTIDAD_INSTRUMENTOS - 1, precioActualIndex.size());
+    }
+
+    @Test
+    void precioProgramadoRigeDesdeSuFechaConBusquedaBinaria() {
+        precioActualIndex.cargar();
+        long ahora = System.currentTimeMillis();
+
+        precioActualIndex.registrar(1L, ahora + 60_000, 2000.0);
+        precioActualIndex.registrar(1L, ahora + 120_000, 3000.0);
+
+        assertEquals(1001.0, precioActualIndex.obtener(1L));
+        assertEquals(1001.0, precioActualIndex.obtenerEn(1L, ahora + 59_999));
+        assertEquals(2000.0, precioActualIndex.obtenerEn(1L, ahora + 60_000));
+        assertEquals(3000.0, precioActualIndex.obtenerEn(1L, ahora + 500_000));
+        assertEquals(null, precioActualIndex.obtenerEn(1L, 0));
+        assertTrue(precioActualIndex.tomarActivados().isEmpty());
+
+        // Al llegar su fecha, el programado pasa a ser el vigente y queda pendiente de persistir
+        precioActualIndex.registrar(2L, ahora + 30_000, 77.0);
+        precioActualIndex.activarVencidos(ahora + 30_000);
+        assertEquals(77.0, precioActualIndex.obtener(2L));
+        assertEquals(1001.0, precioActualIndex.obtener(1L));
+        assertEquals(Map.of(2L, 77.0), precioActualIndex.tomarActivados());
+    }
+
+    private double resolverPreciosDelCatalogo() {
+        double total = 0;
+        for (Instrumento instrumento : catalogo) {
+            total += instrumentoService.obtenerPrecioActual(instrumento);
+        }
+        return total;
+    }
+
+    private int consultasDePrecio() {
+        return (int) mockingDetails(historialPrecioRepository).getInvocations().stream()
+                .filter(i -> i.getMethod().getName().equals("findPrecioVigenteByInstrumentoId"))
+                .count();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistroCambiosCatalogoTest {
+
+    @Test
+    void devuelveCadaInstrumentoUnaVezConSuUltimoCambio() {
+        RegistroCambiosCatalogo registro = new RegistroCambiosCatalogo(100);
+        long inicio = registro.ultimaSecuencia();
+        registro.registrar(1, TipoCambio.PRECIO);
+        registro.registrar(2, TipoCambio.CREADO);
+        registro.registrar(1, TipoCambio.STOCK);
+        long hasta = registro.registrar(3, TipoCambio.ACTUALIZADO);
+        registro.registrar(3, TipoCambio.ELIMINADO);
+
+        RegistroCambiosCatalogo.Cambios cambios = registro.cambiosDesde(inicio, 10);
+        assertEquals(List.of(1L, 2L), cambios.modificados());
+        assertEquals(List.of(3L), cambios.eliminados());
+        assertEquals(registro.ultimaSecuencia(), cambios.hasta());
+        assertFalse(cambios.hayMas());
+
+        // Desde una secuencia intermedia solo aparece lo posterior
+        assertEquals(List.of(3L), registro.cambiosDesde(hasta, 10).eliminados());
+        assertTrue(registro.cambiosDesde(registro.ultimaSecuencia(), 10).modificados().isEmpty());
+    }
+
+    @Test
+    void cortaAlJuntarElLimiteDeInstrumentos() {
+        RegistroCambiosCatalogo registro = new RegistroCambiosCatalogo(100);
+        long inicio = registro.ultimaSecuencia();
+        registro.registrar(1, TipoCambio.PRECIO);
+        registro.registrar(1, TipoCambio.STOCK);
+        long segundo = registro.registrar(2, TipoCambio.PRECIO);
+        registro.registrar(3, TipoCambio.PRECIO);
+
+        RegistroCambiosCatalogo.Cambios pagina = registro.cambiosDesde(inicio, 2);
+        assertEquals(List.of(1L, 2L), pagina.modificados());
+        assertEquals(segundo, pagina.hasta());
+        assertTrue(pagina.hayMas());
+        assertEquals(List.of(3L), registro.cambiosDesde(pagina.hasta(), 2).modificados());
+    }
+
+    @Test
+    void pideResincronizarCuandoLosCambiosYaSeDescartaron() {
+        RegistroCambiosCatalogo registro = new RegistroCambiosCatalogo(3);
+        long inicio = registro.ultimaSecuencia();
+        for (long id = 1; id <= 5; id++) {
+            registro.registrar(id, TipoCambio.STOCK);
+        }
+
+        assertNull(registro.cambiosDesde(inicio, 10));
+        assertNull(registro.cambiosDesde(inicio + 1, 10));
+        assertEquals(List.of(3L, 4L, 5L), registro.cambiosDesde(inicio + 2, 10).modificados());
+        // Una secuencia mayor a la actual es de otro arranque
+        assertNull(registro.cambiosDesde(registro.ultimaSecuencia() + 1, 10));
+    }
+
+    @Test
+    void unLoteOcupaUnaSolaEntrada() {
+        RegistroCambiosCatalogo registro = new RegistroCambiosCatalogo(3);
+        long inicio = registro.ultimaSecuencia();
+        registro.registrar(1, TipoCambio.ACTUALIZADO);
+        long[] lote = new long[500];
+        for (int i = 0; i < lote.length; i++) {
+            lote[i] = i + 10;
+        }
+        long hastaLote = registro.registrarLote(lote, TipoCambio.STOCK);
+        registro.registrar(2, TipoCambio.PRECIO);
+
+        // El lote no desplazó los cambios anteriores
+        RegistroCambiosCatalogo.Cambios cambios = registro.cambiosDesde(inicio, 1000);
+        assertEquals(502, cambios.modificados().size());
+        assertEquals(1L, cambios.modificados().get(0));
+
+        // Con un límite menor que el lote, se corta antes y el lote sale entero en la página siguiente
+        RegistroCambiosCatalogo.Cambios pagina = registro.cambiosDesde(inicio, 10);
+        assertEquals(List.of(1L), pagina.modificados());
+        assertTrue(pagina.hayMas());
+        RegistroCambiosCatalogo.Cambios siguiente = registro.cambiosDesde(pagina.hasta(), 10);
+        assertEquals(500, siguiente.modificados().size());
+        assertEquals(hastaLote, siguiente.hasta());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.instrumentos.service;
+
+import com.example.instrumentos.event.InstrumentoModificadoEvent;
+import com.example.instrumentos.event.InstrumentoModificadoEvent.TipoCambio;
+import com.example.instrumentos.repository.InstrumentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SimilaresIndexTest {
+
+    private final List<Object[]> filas = new ArrayList<>();
+    private SimilaresIndex index;
+
+    @BeforeEach
+    void setUp() {
+        InstrumentoRepository repository = mock(InstrumentoRepository.class);
+        when(repository.findTextosSimilares()).thenAnswer(invocation -> List.copyOf(filas));
+        when(repository.findTextosSimilaresByIds(any())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return filas.stream().filter(f -> ids.contains(f[0])).toList();
+        });
+        index = new SimilaresIndex(repository);
+
+        filas.add(fila(1L, "Guitarra Eléctrica Stratocaster", "Cuerpo de aliso, tres micrófonos simples", "Fender", 1L));
+        filas.add(fila(2L, "Guitarra Eléctrica Telecaster", "Cuerpo de fresno, dos micrófonos simples", "Fender", 1L));
+        filas.add(fila(3L, "Guitarra Criolla", "Tapa de cedro y cuerdas de nylon", "Gracia", 1L));
+        filas.add(fila(4L, "Batería Acústica", "Cinco tambores con platillos", "Yamaha", 2L));
+        filas.add(fila(5L, "Bajo Eléctrico Precision", "Cuerpo de aliso, un micrófono partido", "Fender", 1L));
+        index.cargar();
+        index.recalcular();
+    }
+
+    @Test
+    void ordenaPorSimilitudDeContenido() {
+        List<Long> similares = index.similares(1L, 3);
+        assertEquals(2L, similares.get(0));
+        assertEquals(Set.of(3L, 5L), Set.copyOf(similares.subList(1, 3)));
+        assertFalse(index.similares(4L, 10).contains(1L), "Sin términos en común no hay similitud");
+    }
+
+    @Test
+    void recalculaSoloLosInstrumentosModificados() {
+        // Un instrumento nuevo casi igual al 1 entra en su lista y el 4 deja de estar aislado
+        filas.add(fila(6L, "Guitarra Eléctrica Stratocaster Deluxe", "Cuerpo de aliso, tres micrófonos simples",
+                "Fender", 1L));
+        filas.set(3, fila(4L, "Batería Acústica", "Cinco tambores con platillos y micrófonos", "Yamaha", 2L));
+        index.onInstrumentoModificado(evento(6L, TipoCambio.CREADO));
+        index.onInstrumentoModificado(evento(4L, TipoCambio.ACTUALIZADO));
+        index.recalcular();
+
+        assertEquals(6L, index.similares(1L, 1).get(0));
+        assertEquals(1L, index.similares(6L, 1).get(0));
+        assertTrue(index.similares(4L, 10).contains(1L));
+
+        // Al eliminarlo desaparece de las listas que lo contenían
+        filas.removeIf(f -> f[0].equals(6L));
+        index.onInstrumentoModificado(evento(6L, TipoCambio.ELIMINADO));
+        index.recalcular();
+        assertEquals(2L, index.similares(1L, 1).get(0));
+        assertTrue(index.similares(6L, 10).isEmpty());
+    }
+
+    @Test
+    void calculoCompletoLlenaLosVecinosDeCadaInstrumento() {
+        String[] palabras = ("guitarra bajo bateria piano teclado violin flauta saxo trompeta ukelele " +
+                "electrica acustica criolla digital madera nylon acero cuerda viento percusion " +
+                "aliso fresno caoba arce palisandro cedro microfono pastilla puente mastil").split(" ");
+        String[] marcas = { "Fender", "Gibson", "Yamaha", "Casio", "Roland", "Ibanez", "Remo", "Gracia" };
+        Random random = new Random(42);
+
+        filas.clear();
+        for (long id = 1; id <= 300; id++) {
+            StringBuilder descripcion = new StringBuilder();
+            for (int i = 0; i < 12; i++) {
+                descripcion.append(palabras[random.nextInt(palabras.length)]).append(' ');
+            }
+            filas.add(fila(id, palabras[random.nextInt(10)] + " " + palabras[10 + random.nextInt(10)],
+                    descripcion.toString(), marcas[random.nextInt(marcas.length)], 1L + random.nextInt(8)));
+        }
+
+        index.cargar();
+        index.recalcular();
+
+        assertEquals(300, index.size());
+        assertEquals(SimilaresIndex.VECINOS, index.similares(1L, SimilaresIndex.VECINOS).size());
+        assertFalse(index.similares(1L, SimilaresIndex.VECINOS).contains(1L), "Un instrumento no es similar a sí mismo");
+    }
+
+    private static Object[] fila(Long id, String denominacion, String descripcion, String marca, Long idCategoria) {
+        return new Object[] { id, denominacion, descripcion, marca, idCategoria };
+    }
+
+    private static InstrumentoModificadoEvent evento(Long id, TipoCambio tipo) {
+        return new InstrumentoModificadoEvent(id, tipo);
+    }
+}
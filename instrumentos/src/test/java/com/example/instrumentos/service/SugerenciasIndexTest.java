@@ -0,0 +1,62 @@
+package com.example.instrumentos.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SugerenciasIndexTest {
+
+    private SugerenciasIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SugerenciasIndex(null, null);
+        index.indexar(1, "Guitarra Criolla", "Gracia");
+        index.indexar(2, "Guitarra Eléctrica Stratocaster", "Fender");
+        index.indexar(3, "Bajo Eléctrico", "Fender");
+        index.indexar(4, "Batería Acústica", "Yamaha");
+    }
+
+    @Test
+    void coincideConCualquierComienzoDePalabraSinTildes() {
+        assertEquals(List.of("Guitarra Eléctrica Stratocaster"), textos(index.sugerir("strato", 10)));
+        assertEquals(List.of("Batería Acústica"), textos(index.sugerir("BATERIA a", 10)));
+        assertTrue(textos(index.sugerir("electr", 10))
+                .containsAll(List.of("Guitarra Eléctrica Stratocaster", "Bajo Eléctrico")));
+        assertTrue(index.sugerir("ster", 10).isEmpty());
+    }
+
+    @Test
+    void ordenaPorUnidadesVendidas() {
+        index.registrarVenta(1, 5);
+        index.registrarVenta(2, 2);
+        assertEquals(List.of("Guitarra Criolla", "Guitarra Eléctrica Stratocaster"),
+                textos(index.sugerir("guitarra", 10)));
+
+        // Una cancelación descuenta lo vendido
+        index.registrarVenta(1, -5);
+        assertEquals(List.of("Guitarra Eléctrica Stratocaster", "Guitarra Criolla"),
+                textos(index.sugerir("guitarra", 10)));
+    }
+
+    @Test
+    void agrupaMarcasYSeActualizaIncrementalmente() {
+        List<SugerenciasIndex.Resultado> fender = index.sugerir("fend", 10);
+        assertEquals(1, fender.size());
+        assertEquals(2, fender.get(0).instrumentos());
+
+        index.indexar(3, "Bajo Eléctrico", "Ibanez");
+        index.eliminar(2);
+        assertTrue(index.sugerir("fend", 10).isEmpty());
+        assertTrue(index.sugerir("strato", 10).isEmpty());
+        assertEquals(List.of("Ibanez"), textos(index.sugerir("iba", 10)));
+    }
+
+    private static List<String> textos(List<SugerenciasIndex.Resultado> resultados) {
+        return resultados.stream().map(SugerenciasIndex.Resultado::texto).toList();
+    }
+}